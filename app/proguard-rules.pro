@@ -14,8 +14,18 @@
 
 # Uncomment this to preserve the line number information for
 # debugging stack traces.
-#-keepattributes SourceFile,LineNumberTable
+-keepattributes SourceFile,LineNumberTable
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Persisted models (Alarm, RingLatencyRecord) are serialized by the hand-written JsonSerializers
+# in the serialization package, which only use Gson's streaming JsonReader/JsonWriter.
+# No reflection is involved, so no keep rules are needed for them and R8 may rename and inline freely.
+
+# Strip debug and verbose logging from release builds
+-assumenosideeffects class android.util.Log {
+    public static int d(...);
+    public static int v(...);
+}
@@ -0,0 +1,68 @@
+package com.customsolutions.automaticalarmsetter;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.customsolutions.automaticalarmsetter.core.metrics.Timer;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmToggleHandler;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Toggles like the tile and the widget do and checks that the foreground service is started within the budget
+ */
+@RunWith(AndroidJUnit4.class)
+public class AlarmToggleHandlerTest {
+
+    private static final long SERVICE_START_TIMEOUT_MILLIS = 5000;
+    private Context context;
+    private AlarmToggleHandler alarmToggleHandler;
+    private AlarmPreferencesUtil alarmPreferencesUtil;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        alarmToggleHandler = AlarmToggleHandler.getInstance(context);
+        alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+        AlarmHandler.getInstance(context).cancelAlarms();
+        alarmPreferencesUtil.removeFutureAlarmTimes();
+    }
+
+    @After
+    public void tearDown() {
+        AlarmHandler.getInstance(context).cancelAlarms();
+        alarmPreferencesUtil.removeFutureAlarmTimes();
+        alarmPreferencesUtil.flush();
+    }
+
+    @Test
+    public void toggle_startsTheServiceWithinTheBudgetAndDisarmsAtOnce() throws InterruptedException {
+        Timer timer = AlarmSetterApplication.from(context).getMetricsRegistry().timer("toggle.tapToServiceStarted");
+        long count = timer.getCount();
+        long totalNanos = timer.getTotalNanos();
+
+        assertTrue(alarmToggleHandler.toggle(SystemClock.elapsedRealtimeNanos()));
+        long deadline = SystemClock.uptimeMillis() + SERVICE_START_TIMEOUT_MILLIS;
+        while (timer.getCount() == count && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("The service was not started", count + 1, timer.getCount());
+        long elapsedMillis = (timer.getTotalNanos() - totalNanos) / 1000000;
+        assertTrue(String.format("Service started %d ms after the tap, over the budget of %d ms", elapsedMillis,
+                AlarmToggleHandler.TAP_TO_SERVICE_STARTED_BUDGET_MILLIS), elapsedMillis <= AlarmToggleHandler.TAP_TO_SERVICE_STARTED_BUDGET_MILLIS);
+
+        assertFalse(alarmToggleHandler.toggle(SystemClock.elapsedRealtimeNanos()));
+        assertEquals(AlarmStatus.Kind.NO_ALARM, alarmPreferencesUtil.getStatus().getKind());
+    }
+}
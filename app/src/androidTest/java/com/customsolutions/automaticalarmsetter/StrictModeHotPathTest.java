@@ -0,0 +1,79 @@
+package com.customsolutions.automaticalarmsetter;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.customsolutions.automaticalarmsetter.receiver.AlarmReceiver;
+import com.customsolutions.automaticalarmsetter.receiver.ScreenReceiver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the components of the hot paths on the main thread with fatal StrictMode violations, as set up by the debug StrictModeInitializer.
+ * Every test runs in a new process with cleared data through the test orchestrator, and nothing is loaded before the component runs,
+ * so the first load of the preference files is checked as well
+ */
+@RunWith(AndroidJUnit4.class)
+public class StrictModeHotPathTest {
+
+    private static final int REQUEST_CODE = 4242;
+    private Instrumentation instrumentation;
+    private Context context;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        StrictModeInitializer.clearViolations();
+        StrictModeInitializer.setFatal(true);
+    }
+
+    @After
+    public void tearDown() {
+        StrictModeInitializer.setFatal(false);
+    }
+
+    @Test
+    public void screenReceiver_screenOff_hasNoViolations() {
+        instrumentation.runOnMainSync(() -> new ScreenReceiver().onReceive(context, new Intent(Intent.ACTION_SCREEN_OFF)));
+        assertEquals(0, StrictModeInitializer.getViolationCount());
+    }
+
+    @Test
+    public void ringActivity_createAndSnooze_haveNoViolations() {
+        try (ActivityScenario<RingActivity> scenario = ActivityScenario.launch(getRingIntent())) {
+            scenario.onActivity(activity -> activity.findViewById(R.id.snoozeButton).performClick());
+        }
+        assertEquals(0, StrictModeInitializer.getViolationCount());
+    }
+
+    @Test
+    public void ringActivity_createAndStop_haveNoViolations() {
+        try (ActivityScenario<RingActivity> scenario = ActivityScenario.launch(getRingIntent())) {
+            scenario.onActivity(activity -> activity.findViewById(R.id.stopButton).performClick());
+        }
+        assertEquals(0, StrictModeInitializer.getViolationCount());
+    }
+
+    /**
+     * Gets the intent the AlarmReceiver starts the RingActivity with
+     * @return the intent
+     */
+    private Intent getRingIntent() {
+        return new Intent(context, RingActivity.class)
+                .putExtra(AlarmReceiver.EXTRA_REQUEST_CODE, REQUEST_CODE)
+                .putExtra(AlarmReceiver.EXTRA_TRIGGER_TIME, System.currentTimeMillis())
+                .putExtra(AlarmReceiver.EXTRA_RECEIVED_AT_ELAPSED_MILLIS, SystemClock.elapsedRealtime());
+    }
+}
@@ -0,0 +1,67 @@
+package com.customsolutions.automaticalarmsetter.receiver;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Restores a full set of stored alarms like after a boot and checks that it stays within the budget of the BootReceiver
+ */
+@RunWith(AndroidJUnit4.class)
+public class BootReceiverTest {
+
+    private static final int ALARM_COUNT = 200;
+    private Context context;
+    private AlarmHandler alarmHandler;
+    private AlarmPreferencesUtil alarmPreferencesUtil;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        alarmHandler = AlarmHandler.getInstance(context);
+        alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+        alarmHandler.cancelAlarms();
+        alarmPreferencesUtil.removeFutureAlarmTimes();
+    }
+
+    @After
+    public void tearDown() {
+        alarmHandler.cancelAlarms();
+        alarmPreferencesUtil.removeFutureAlarmTimes();
+        alarmPreferencesUtil.flush();
+    }
+
+    @Test
+    public void restoreAlarms_staysWithinTheBudget() {
+        long firstTriggerTime = System.currentTimeMillis() + 3_600_000;
+        List<Long> triggerTimes = new ArrayList<>();
+        for (int i = 0; i < ALARM_COUNT; i++) {
+            triggerTimes.add(firstTriggerTime + i * 60_000L);
+        }
+        alarmHandler.importPlan(new AlarmPlan(Collections.singletonList(3_600_000), triggerTimes));
+        alarmPreferencesUtil.flush();
+
+        long elapsedMillis = BootReceiver.restoreAlarms(context);
+
+        assertTrue(String.format("Restoring alarms took %d ms, over the budget of %d ms", elapsedMillis, BootReceiver.RESTORE_BUDGET_MILLIS),
+                elapsedMillis <= BootReceiver.RESTORE_BUDGET_MILLIS);
+        assertEquals(ALARM_COUNT, alarmPreferencesUtil.getState().getAlarms().size());
+        assertTrue(alarmPreferencesUtil.futureAlarmWillBeSet());
+    }
+}
@@ -0,0 +1,66 @@
+package com.customsolutions.automaticalarmsetter;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import com.customsolutions.automaticalarmsetter.handler.RingLatencyTracer;
+import com.customsolutions.automaticalarmsetter.model.RingLatencyRecord;
+import com.customsolutions.automaticalarmsetter.model.RingLatencySummary;
+import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+
+import java.util.List;
+
+/**
+ * Debug only activity that displays how late the most recent alarms rang compared to their scheduled time
+ */
+public class RingLatencyActivity extends AppCompatActivity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_ring_latency);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        RingLatencyTracer ringLatencyTracer = RingLatencyTracer.getInstance(this);
+        // The records are read from a file, so not on the main thread
+        new Thread(() -> {
+            List<RingLatencyRecord> records = ringLatencyTracer.getRecords();
+            runOnUiThread(() -> showRecords(records));
+        }).start();
+    }
+
+    /**
+     * Displays the summary and the records
+     * @param records records to display, oldest first
+     */
+    private void showRecords(List<RingLatencyRecord> records) {
+        if (isDestroyed()) {
+            return;
+        }
+        RingLatencySummary summary = RingLatencySummary.fromRecords(records);
+
+        TextView summaryText = findViewById(R.id.ringLatencySummaryText);
+        summaryText.setText(getString(R.string.ring_latency_summary_format_text, summary.getCount(),
+                summary.getP50LatenessMillis(), summary.getP95LatenessMillis(), summary.getP99LatenessMillis(), summary.getMaxLatenessMillis()));
+
+        // Newest records first
+        StringBuilder recordsString = new StringBuilder();
+        for (int i = records.size() - 1; i >= 0; i--) {
+            RingLatencyRecord record = records.get(i);
+            long scheduled = record.getScheduledTimeMillis();
+            recordsString.append(getString(R.string.ring_latency_record_format_text,
+                    TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(scheduled),
+                    record.getReceivedTimeMillis() - scheduled,
+                    record.getActivityCreatedTimeMillis() - scheduled,
+                    record.getLatenessMillis()));
+            recordsString.append('\n');
+        }
+        TextView recordsText = findViewById(R.id.ringLatencyRecordsText);
+        recordsText.setText(recordsString);
+    }
+}
@@ -0,0 +1,145 @@
+package com.customsolutions.automaticalarmsetter;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.customsolutions.automaticalarmsetter.core.metrics.Counter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Debug only provider turning on StrictMode before the application is created.
+ * The thread policy catches disk and network access on the main thread, the VM policy leaked resources.
+ * Violations are logged, counted under 'strictMode.violations' in the service dump and counted for tests, which can also get the latest ones.
+ * Tests call setFatal(true) to crash the app on the next violation, which fails them
+ */
+public class StrictModeInitializer extends ContentProvider {
+
+    private static final int MAX_KEPT_VIOLATIONS = 32; // Only the latest are kept, so a violation in a loop does not fill the heap
+    private static final Deque<Violation> violations = new ArrayDeque<>();
+    private static long violationCount; // Guarded by violations
+    private static volatile boolean fatal = false;
+
+    @Override
+    public boolean onCreate() {
+        Context context = getContext();
+        // Runs the listener on the thread that reported the violation, so a fatal violation crashes right away
+        Executor directExecutor = Runnable::run;
+        Counter violationCounter = AlarmSetterApplication.from(context).getMetricsRegistry().counter("strictMode.violations");
+        StrictMode.OnThreadViolationListener threadListener = violation -> onViolation(violation, violationCounter);
+        StrictMode.OnVmViolationListener vmListener = violation -> onViolation(violation, violationCounter);
+
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .detectCustomSlowCalls()
+                .detectResourceMismatches()
+                .detectUnbufferedIo()
+                .penaltyLog()
+                .penaltyListener(directExecutor, threadListener)
+                .build());
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedClosableObjects()
+                .detectLeakedRegistrationObjects()
+                .detectLeakedSqlLiteObjects()
+                .detectActivityLeaks()
+                .detectFileUriExposure()
+                .detectContentUriWithoutPermission()
+                .penaltyLog()
+                .penaltyListener(directExecutor, vmListener)
+                .build());
+        Log.d("StrictModeInitializer", "StrictMode enabled");
+        return true;
+    }
+
+    private static void onViolation(Violation violation, Counter violationCounter) {
+        violationCounter.increment();
+        synchronized (violations) {
+            violationCount++;
+            if (violations.size() == MAX_KEPT_VIOLATIONS) {
+                violations.removeFirst();
+            }
+            violations.addLast(violation);
+        }
+        if (fatal) {
+            throw new IllegalStateException("StrictMode violation", violation);
+        }
+    }
+
+    /**
+     * Makes every following violation crash the app, e.g. while a test runs a hot path
+     * @param fatal whether violations are fatal
+     */
+    public static void setFatal(boolean fatal) {
+        StrictModeInitializer.fatal = fatal;
+    }
+
+    /**
+     * Gets the number of violations reported since the app started or they were last cleared
+     * @return number of violations
+     */
+    public static long getViolationCount() {
+        synchronized (violations) {
+            return violationCount;
+        }
+    }
+
+    /**
+     * Gets the latest violations reported since the app started or they were last cleared, at most MAX_KEPT_VIOLATIONS
+     * @return copy of the violations, oldest first
+     */
+    public static List<Violation> getViolations() {
+        synchronized (violations) {
+            return new ArrayList<>(violations);
+        }
+    }
+
+    public static void clearViolations() {
+        synchronized (violations) {
+            violations.clear();
+            violationCount = 0;
+        }
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        return null;
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        return 0;
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
+        return 0;
+    }
+}
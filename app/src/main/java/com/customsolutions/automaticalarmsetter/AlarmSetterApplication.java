@@ -0,0 +1,107 @@
+package com.customsolutions.automaticalarmsetter;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.service.quicksettings.TileService;
+
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHistoryRecorder;
+import com.customsolutions.automaticalarmsetter.handler.AlarmSoundHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmToggleHandler;
+import com.customsolutions.automaticalarmsetter.handler.RingLatencyTracer;
+import com.customsolutions.automaticalarmsetter.provider.AlarmContract;
+import com.customsolutions.automaticalarmsetter.service.AlarmTileService;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.ForegroundNotificationTextUtil;
+import com.customsolutions.automaticalarmsetter.util.Lazy;
+import com.customsolutions.automaticalarmsetter.util.SettingsPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.StartupTimingUtil;
+import com.customsolutions.automaticalarmsetter.widget.AlarmWidgetUpdater;
+
+/**
+ * Application class acting as the container of the application wide components.
+ * Components are created lazily on first use so that nothing is built before it is needed
+ */
+public class AlarmSetterApplication extends Application {
+
+    private final Lazy<MetricsRegistry> metricsRegistry = new Lazy<>(MetricsRegistry::new);
+    private final Lazy<AlarmPreferencesUtil> alarmPreferencesUtil = new Lazy<>(this::createAlarmPreferencesUtil);
+    private final Lazy<SettingsPreferencesUtil> settingsPreferencesUtil = new Lazy<>(() -> new SettingsPreferencesUtil(this));
+    private final Lazy<AlarmHandler> alarmHandler = new Lazy<>(() -> new AlarmHandler(this));
+    private final Lazy<AlarmSoundHandler> alarmSoundHandler = new Lazy<>(() -> new AlarmSoundHandler(this));
+    private final Lazy<RingLatencyTracer> ringLatencyTracer = new Lazy<>(() -> new RingLatencyTracer(this));
+    private final Lazy<ForegroundNotificationTextUtil> foregroundNotificationTextUtil = new Lazy<>(() -> new ForegroundNotificationTextUtil(this));
+    private final Lazy<AlarmHistoryRecorder> alarmHistoryRecorder = new Lazy<>(() -> new AlarmHistoryRecorder(this));
+    private final Lazy<AlarmToggleHandler> alarmToggleHandler = new Lazy<>(() -> new AlarmToggleHandler(this));
+    private final Lazy<AlarmWidgetUpdater> alarmWidgetUpdater = new Lazy<>(() -> new AlarmWidgetUpdater(this));
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupTimingUtil.markApplicationCreated();
+    }
+
+    /**
+     * Creates the AlarmPreferencesUtil, with the widget, the Quick Settings tile and AlarmProvider observers following every written snapshot
+     * @return the AlarmPreferencesUtil instance
+     */
+    private AlarmPreferencesUtil createAlarmPreferencesUtil() {
+        AlarmPreferencesUtil util = new AlarmPreferencesUtil(this);
+        util.addStateListener(state -> getAlarmWidgetUpdater().onStateChanged(state));
+        // The tile is only bound when asked to, instead of every time the Quick Settings are opened
+        util.addStateListener(state -> TileService.requestListeningState(this, new ComponentName(this, AlarmTileService.class)));
+        util.addStateListener(state -> getContentResolver().notifyChange(AlarmContract.AUTHORITY_URI, null));
+        return util;
+    }
+
+    /**
+     * Gets the application's container from any of its contexts
+     * @param context context of the application
+     * @return the AlarmSetterApplication instance
+     */
+    public static AlarmSetterApplication from(Context context) {
+        return (AlarmSetterApplication) context.getApplicationContext();
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry.get();
+    }
+
+    public AlarmPreferencesUtil getAlarmPreferencesUtil() {
+        return alarmPreferencesUtil.get();
+    }
+
+    public SettingsPreferencesUtil getSettingsPreferencesUtil() {
+        return settingsPreferencesUtil.get();
+    }
+
+    public AlarmHandler getAlarmHandler() {
+        return alarmHandler.get();
+    }
+
+    public AlarmSoundHandler getAlarmSoundHandler() {
+        return alarmSoundHandler.get();
+    }
+
+    public RingLatencyTracer getRingLatencyTracer() {
+        return ringLatencyTracer.get();
+    }
+
+    public ForegroundNotificationTextUtil getForegroundNotificationTextUtil() {
+        return foregroundNotificationTextUtil.get();
+    }
+
+    public AlarmHistoryRecorder getAlarmHistoryRecorder() {
+        return alarmHistoryRecorder.get();
+    }
+
+    public AlarmToggleHandler getAlarmToggleHandler() {
+        return alarmToggleHandler.get();
+    }
+
+    public AlarmWidgetUpdater getAlarmWidgetUpdater() {
+        return alarmWidgetUpdater.get();
+    }
+}
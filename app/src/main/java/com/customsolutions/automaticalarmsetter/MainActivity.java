@@ -1,57 +1,89 @@
 package com.customsolutions.automaticalarmsetter;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
-import android.widget.Button;
 import android.widget.NumberPicker;
-import android.widget.TextView;
 
-import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
-import com.customsolutions.automaticalarmsetter.service.ForegroundAlarmSetterService;
-import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
-import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+import com.customsolutions.automaticalarmsetter.databinding.ActivityMainBinding;
+import com.customsolutions.automaticalarmsetter.model.MainUiState;
+import com.customsolutions.automaticalarmsetter.model.PlanImportState;
+import com.customsolutions.automaticalarmsetter.util.SettingsPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.StartupTimingUtil;
+import com.customsolutions.automaticalarmsetter.viewmodel.MainViewModel;
 
 public class MainActivity extends AppCompatActivity {
 
-    private NumberPicker hourPicker;
-    private NumberPicker minutePicker;
-    private NumberPicker secondPicker;
+    private static final String PLAN_MIME_TYPE = "application/json";
+    private static final String PLAN_FILE_NAME = "alarm_plan.json";
 
-    private AlarmPreferencesUtil alarmPreferencesUtil;
-    private AlarmHandler alarmHandler;
+    private ActivityMainBinding binding;
+    private MainViewModel viewModel;
+    private MainUiState appliedState; // State currently displayed on the screen
+    private int snoozeDurationMinutes = SettingsPreferencesUtil.DEFAULT_SNOOZE_DURATION_MINUTES;
+    private AlertDialog planImportDialog; // Dialog showing the plan import state, null if none is shown
+    private final ActivityResultLauncher<String[]> importPlanLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::onPlanToImportChosen);
+    private final ActivityResultLauncher<String> exportPlanLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(PLAN_MIME_TYPE), this::onPlanToExportChosen);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         Log.d("MainActivity", "onCreate called!");
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
-        // Get object's references
-        hourPicker = findViewById(R.id.hourPicker);
-        minutePicker = findViewById(R.id.minutePicker);
-        secondPicker = findViewById(R.id.secondPicker);
+        StartupTimingUtil.trackLaunch(this);
+        binding = ActivityMainBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
 
         // Set the appropriate value ranges for the elements
-        hourPicker.setMinValue(0);
-        hourPicker.setMaxValue(23);
+        binding.hourPicker.setMinValue(0);
+        binding.hourPicker.setMaxValue(23);
 
-        minutePicker.setMinValue(0);
-        minutePicker.setMaxValue(59);
+        binding.minutePicker.setMinValue(0);
+        binding.minutePicker.setMaxValue(59);
 
-        secondPicker.setMinValue(0);
-        secondPicker.setMaxValue(59);
+        binding.secondPicker.setMinValue(0);
+        binding.secondPicker.setMaxValue(59);
 
-        alarmHandler = AlarmHandler.getInstance(this);
-        alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(this);
-        updateActivityContents();
+        viewModel = new ViewModelProvider(this).get(MainViewModel.class);
+        viewModel.getUiState().observe(this, this::applyState);
+        viewModel.getSnoozeDurationMinutes().observe(this, this::applySnoozeDuration);
+        viewModel.getPlanImportState().observe(this, this::applyPlanImportState);
+        onDurationChanged();
 
         // Set listeners for the number pickers
-        hourPicker.setOnValueChangedListener(setNumberPickerValueChangedListener());
-        minutePicker.setOnValueChangedListener(setNumberPickerValueChangedListener());
-        secondPicker.setOnValueChangedListener(setNumberPickerValueChangedListener());
+        binding.hourPicker.setOnValueChangedListener(setNumberPickerValueChangedListener());
+        binding.minutePicker.setOnValueChangedListener(setNumberPickerValueChangedListener());
+        binding.secondPicker.setOnValueChangedListener(setNumberPickerValueChangedListener());
+
+        if (savedInstanceState == null) {
+            importSharedPlan(getIntent());
+        }
+    }
+
+    /**
+     * Imports the plan of a document opened or shared with the app, once the user confirmed it
+     * @param intent intent the activity was started with
+     */
+    private void importSharedPlan(Intent intent) {
+        Uri uri = null;
+        if (Intent.ACTION_VIEW.equals(intent.getAction())) {
+            uri = intent.getData();
+        } else if (Intent.ACTION_SEND.equals(intent.getAction())) {
+            uri = intent.getParcelableExtra(Intent.EXTRA_STREAM);
+        }
+        if (uri != null) {
+            Log.d("MainActivity", "Reading shared alarm plan");
+            viewModel.importPlan(uri, true);
+        }
     }
 
     /**
@@ -60,126 +92,160 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        updateActivityContents();
+        viewModel.refresh();
+    }
+
+    /**
+     * Sets the text displayed on the screen and the content user can interact with (disables/enables buttons etc.)
+     * Only the views whose state differs from the displayed one are touched
+     * @param state state to display
+     */
+    private void applyState(MainUiState state) {
+        if (appliedState == null || !appliedState.getButtonText().equals(state.getButtonText())) {
+            binding.setAlarmButton.setText(state.getButtonText());
+        }
+        if (appliedState == null || appliedState.isButtonEnabled() != state.isButtonEnabled()) {
+            binding.setAlarmButton.setEnabled(state.isButtonEnabled());
+        }
+        if (appliedState == null || !appliedState.getStatusText().equals(state.getStatusText())) {
+            binding.alarmsSetText.setText(state.getStatusText());
+        }
+        if (appliedState == null || appliedState.isNumberPickersEnabled() != state.isNumberPickersEnabled()) {
+            setNumberPickersEnabled(state.isNumberPickersEnabled());
+        }
+        appliedState = state;
     }
 
     /**
-     * Sets the text displayed on the screen depending on if an future alarm or an actual alarm has been set.
-     * Also updates the content user can interact with (disables/enables buttons etc.)
+     * Asks the user to confirm a plan, or tells them why the import failed
+     * @param state state of the plan import
      */
-    private void updateActivityContents() {
-        Button button = findViewById(R.id.setAlarmButton);
-        TextView text = findViewById(R.id.alarmsSetText);
-
-        boolean futureAlarmWillBeSet = alarmPreferencesUtil.futureAlarmWillBeSet();
-        boolean alarmIsSet = alarmPreferencesUtil.alarmSet();
-
-        if (alarmIsSet) {
-            // An alarm is already set
-
-            // Get epoch time when next alarm will go off
-            long epochTime = alarmPreferencesUtil.getAlarms().get(0).getEpochTriggerTimeMillis();
-
-            // Update text to display when the next alarm goes off
-            String alarmIsSetFormatString = getString(R.string.alarm_is_set_format_text);
-            String ringTimeString = TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(epochTime);
-            String ringTimeFullString = String.format(alarmIsSetFormatString, ringTimeString);
-            text.setText(ringTimeFullString);
-
-            // Update button to give the option to cancel the alarm
-            String cancelAlarmButtonText = getString(R.string.cancel_alarm_button_text);
-            button.setText(cancelAlarmButtonText);
-        } else if (futureAlarmWillBeSet) {
-            // Future alarm is set
-
-            // Disable number pickers and enable the button
-            setNumberPickersEnabled(false);
-            button.setEnabled(true);
-
-            // Change the button text to display cancel alarm
-            String cancelAlarmButtonText = getString(R.string.cancel_alarm_button_text);
-            button.setText(cancelAlarmButtonText);
-
-            // Change the text below the button to show how long after turning off the screen the alarm will ring
-            String alarmWillBeSetFormatString = getString(R.string.alarm_will_be_set_format_text);
-            int timeMillis = alarmPreferencesUtil.getFutureAlarmTimes().get(0);
-            String timeString = TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(timeMillis);
-            String alarmWillBeSetText = String.format(alarmWillBeSetFormatString, timeString);
-            text.setText(alarmWillBeSetText);
-        } else {
-            // No alarms will be set
-
-            setNumberPickersEnabled(true);
-
-            if (hourPicker.getValue() != 0 || minutePicker.getValue() != 0 || secondPicker.getValue() != 0) {
-                // One of the values is not 0, an alarm can be set.
-                button.setEnabled(true);
-                // Display set alarm text on button
-                String setAlarmButtonText = getString(R.string.set_alarm_button_text);
-                button.setText(setAlarmButtonText);
-
-                // Display no alarms have been set on regular text below the button
-                String noAlarmsHaveBeenSetText = getString(R.string.no_alarm_set_text);
-                text.setText(noAlarmsHaveBeenSetText);
-            } else {
-                // All values are zero, disable the button
-                button.setEnabled(false);
-            }
+    private void applyPlanImportState(PlanImportState state) {
+        closePlanImportDialog();
+        switch (state.getKind()) {
+            case CONFIRMATION_NEEDED:
+                planImportDialog = new AlertDialog.Builder(this)
+                        .setTitle(R.string.import_plan_dialog_title)
+                        .setMessage(state.getMessageText())
+                        .setPositiveButton(R.string.import_plan_confirm_button_text, (dialog, which) -> viewModel.confirmPlanImport())
+                        .setNegativeButton(android.R.string.cancel, null)
+                        .create();
+                break;
+            case FAILED:
+                planImportDialog = new AlertDialog.Builder(this)
+                        .setTitle(R.string.import_plan_failed_dialog_title)
+                        .setMessage(state.getMessageText())
+                        .setPositiveButton(android.R.string.ok, null)
+                        .create();
+                break;
+            default:
+                return;
         }
+        // Confirming clears the state as well, dismissing it again is harmless
+        planImportDialog.setOnDismissListener(dialog -> {
+            planImportDialog = null;
+            viewModel.dismissPlanImport();
+        });
+        planImportDialog.show();
+    }
+
+    /**
+     * Closes the plan import dialog without changing the plan import state
+     */
+    private void closePlanImportDialog() {
+        if (planImportDialog != null) {
+            planImportDialog.setOnDismissListener(null);
+            planImportDialog.dismiss();
+            planImportDialog = null;
+        }
+    }
+
+    /**
+     * The plan import state outlives configuration changes, so its dialog is shown again by the next activity
+     */
+    @Override
+    protected void onDestroy() {
+        closePlanImportDialog();
+        super.onDestroy();
+    }
+
+    /**
+     * Displays the snooze duration on its button
+     * @param minutes snooze duration in minutes
+     */
+    private void applySnoozeDuration(int minutes) {
+        snoozeDurationMinutes = minutes;
+        binding.snoozeDurationButton.setText(getString(R.string.snooze_duration_button_format_text, minutes));
     }
 
     /**
      * Function that runs when the button below the number picker is clicked.
-     * Clears current alarms, writes a future alarm time to shared preferences and starts the ForegroundAlarmSetterService.
+     * Cancels the current alarms, or sets a future alarm with the chosen duration if there are none.
      * @param view view object that function was called from (Button below number picker)
      */
     public void onSetAlarmButtonClick(View view) {
         Log.d("MainActivity", "Set Alarm button clicked!");
-        Intent serviceIntent = new Intent(this, ForegroundAlarmSetterService.class);
-
-        boolean futureAlarmsWillBeSet = alarmPreferencesUtil.futureAlarmWillBeSet();
-        boolean alarmIsSet = alarmPreferencesUtil.alarmSet();
-        if (alarmIsSet) {
-            // At least one alarm is set, cancel them
-            Log.d("MainActivity", "Cancelling alarms...");
-            alarmHandler.cancelAlarms(this);
-            Log.d("MainActivity", "Alarms cancelled!. Stopping foreground service...");
-            stopService(serviceIntent);
-        } else if (!futureAlarmsWillBeSet) {
-            // No alarms set, set the alarm
-            // Get chosen values
-            int hours = hourPicker.getValue();
-            int minutes = minutePicker.getValue();
-            int seconds = secondPicker.getValue();
-
-            // Add future alarm time to shared preferences
-            Log.d("MainActivity", "Adding future alarm time to shared preferences");
-            Integer time = (hours * 3600 + minutes * 60 + seconds) * 1000; // Time in milliseconds
-            alarmPreferencesUtil.addFutureAlarmTime(time);
-
-            // Start Alarm Setter Service
-            Log.d("MainActivity", "Starting ForegroundAlarmSetterService...");
-            startService(serviceIntent);
-            Log.d("MainActivity", "ForegroundAlarmSetterService started!");
-        } else { // Future alarms will be set, cancel them
-            // Cancel old future alarm times
-            Log.d("MainActivity", "Cancelling old future alarms and stopping foreground service...");
-            alarmPreferencesUtil.removeFutureAlarmTimes();
-            stopService(serviceIntent);
-            Log.d("MainActivity", "Old alarms cancelled and foreground service stopped!");
+        viewModel.onSetAlarmButtonClick(binding.hourPicker.getValue(), binding.minutePicker.getValue(), binding.secondPicker.getValue());
+    }
+
+    /**
+     * Lets the user pick a document holding an alarm plan to import
+     * @param view view object of the button
+     */
+    public void onImportPlanButtonClick(View view) {
+        importPlanLauncher.launch(new String[]{PLAN_MIME_TYPE});
+    }
+
+    /**
+     * Lets the user pick where to export the alarm plan to
+     * @param view view object of the button
+     */
+    public void onExportPlanButtonClick(View view) {
+        exportPlanLauncher.launch(PLAN_FILE_NAME);
+    }
+
+    /**
+     * Lets the user choose how long alarms are snoozed for
+     * @param view view object of the button
+     */
+    public void onSnoozeDurationButtonClick(View view) {
+        NumberPicker picker = new NumberPicker(this);
+        picker.setMinValue(1);
+        picker.setMaxValue(SettingsPreferencesUtil.MAX_SNOOZE_DURATION_MINUTES);
+        picker.setValue(snoozeDurationMinutes);
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.snooze_duration_dialog_title)
+                .setView(picker)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> viewModel.setSnoozeDurationMinutes(picker.getValue()))
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void onPlanToImportChosen(Uri uri) {
+        if (uri != null) {
+            viewModel.importPlan(uri, false);
+        }
+    }
+
+    private void onPlanToExportChosen(Uri uri) {
+        if (uri != null) {
+            viewModel.exportPlan(uri);
         }
-        // Update the text on the screen;
-        updateActivityContents();
     }
 
     /**
      * Set a number pickers value changed listener
-     * @return Class that contains a method that updates the text on the screen every time a value is changed on the number picker.
+     * @return Class that contains a method that notifies the ViewModel every time a value is changed on the number picker.
      */
     private NumberPicker.OnValueChangeListener setNumberPickerValueChangedListener() {
-        return (picker, oldVal, newVal) -> {
-            updateActivityContents(); // Update the text on the screen
-        };
+        return (picker, oldVal, newVal) -> onDurationChanged();
+    }
+
+    /**
+     * Passes the duration chosen with the number pickers to the ViewModel
+     */
+    private void onDurationChanged() {
+        viewModel.onDurationChanged(binding.hourPicker.getValue(), binding.minutePicker.getValue(), binding.secondPicker.getValue());
     }
 
     /**
@@ -187,8 +253,8 @@ public class MainActivity extends AppCompatActivity {
      * @param enabled Whether the number pickers should be enabled or not
      */
     private void setNumberPickersEnabled(boolean enabled) {
-        hourPicker.setEnabled(enabled);
-        minutePicker.setEnabled(enabled);
-        secondPicker.setEnabled(enabled);
+        binding.hourPicker.setEnabled(enabled);
+        binding.minutePicker.setEnabled(enabled);
+        binding.secondPicker.setEnabled(enabled);
     }
-}
\ No newline at end of file
+}
@@ -3,69 +3,61 @@ package com.customsolutions.automaticalarmsetter;
 import androidx.appcompat.app.AppCompatActivity;
 
 import android.content.Intent;
-import android.media.Ringtone;
-import android.media.RingtoneManager;
 import android.os.Bundle;
-import android.os.VibrationEffect;
-import android.os.Vibrator;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 
 import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
-import com.customsolutions.automaticalarmsetter.model.Alarm;
+import com.customsolutions.automaticalarmsetter.handler.AlarmSoundHandler;
+import com.customsolutions.automaticalarmsetter.handler.RingLatencyTracer;
+import com.customsolutions.automaticalarmsetter.receiver.AlarmReceiver;
 import com.customsolutions.automaticalarmsetter.service.ForegroundAlarmSetterService;
 import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
 import com.customsolutions.automaticalarmsetter.util.ForegroundNotificationTextUtil;
-
-import java.util.List;
+import com.customsolutions.automaticalarmsetter.util.SettingsPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.StartupTimingUtil;
 
 public class RingActivity extends AppCompatActivity {
 
-    private static final int SNOOZE_TIME_MINUTES = 10;
-    private static final long[] vibrationPattern = {0, 1000, 500}; // delay before starting, vibration duration, time before next vibration
-    private AlarmHandler alarmHandler;
-    private AlarmPreferencesUtil alarmPreferencesUtil;
-    private ForegroundNotificationTextUtil foregroundNotificationTextUtil;
-    private Vibrator vibrator;
-    private Ringtone ringtone;
+    // Only the sound is needed before the first frame, the other components are fetched once a button is pressed.
+    // The RingLatencyTracer only records a timestamp here, the trace is stored on its own thread
+    private AlarmSoundHandler alarmSoundHandler;
+    private int requestCode; // Request code of the alarm that went off
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         Log.d("RingActivity", "Ring Activity started!");
+        RingLatencyTracer.getInstance(this).onActivityCreated(System.currentTimeMillis());
 
         super.onCreate(savedInstanceState);
+        StartupTimingUtil.trackLaunch(this);
         // Show it on lock screen
         setShowWhenLocked(true);
 
         setContentView(R.layout.activity_ring);
 
-        // Get class instances
-        alarmHandler = AlarmHandler.getInstance(this);
-        alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(this);
-        foregroundNotificationTextUtil = ForegroundNotificationTextUtil.getInstance(this);
-        ringtone = RingtoneManager.getRingtone(this, RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM));
-        vibrator = (Vibrator) getSystemService(VIBRATOR_SERVICE);
+        alarmSoundHandler = AlarmSoundHandler.getInstance(this);
+        requestCode = AlarmReceiver.getRequestCode(getIntent());
 
         // Start the alarm
         startAlarm();
     }
 
     /**
-     * Snoozes the alarm by making it come back in SNOOZE_TIME_MINUTES minutes and exits the activity
+     * Snoozes the alarm by making it come back after the configured snooze duration and exits the activity
      * @param view view object of the button
      */
     public void onSnoozeButtonClick(View view) {
         Log.d("RingActivity", "Alarm snoozed!");
-        removeAlarmFromPreferences();
-        // Set new alarm
-        int timeInMillis = SNOOZE_TIME_MINUTES * 60 * 1000;
-        alarmHandler.scheduleAlarmAfterTimeMillis(this, timeInMillis);
+        stopAlarm();
+        int snoozeMillis = SettingsPreferencesUtil.getInstance(this).getSnoozeDurationMillis();
+        // Moves the alarm that went off, or sets a new one if it is no longer stored
+        AlarmHandler.getInstance(this).snoozeRingingAlarm(requestCode, snoozeMillis);
 
         // Update notification text
-        foregroundNotificationTextUtil.updateNotificationContents(this);
+        ForegroundNotificationTextUtil.getInstance(this).updateNotificationContents(this);
 
-        // Stop the alarm and exit
-        stopAlarm();
         finish();
     }
 
@@ -75,15 +67,16 @@ public class RingActivity extends AppCompatActivity {
      */
     public void onStopButtonClick(View view) {
         Log.d("RingActivity", "Alarm stopped!");
-        removeAlarmFromPreferences();
+        boolean alarmsLeft = AlarmHandler.getInstance(this).stopRingingAlarm(requestCode);
 
         Intent serviceIntent = new Intent(this, ForegroundAlarmSetterService.class);
 
         // Check if this was the last alarm that was meant to ring
-        if (alarmPreferencesUtil.alarmSet()) {
+        if (alarmsLeft) {
             // Alarm set
-            Log.d("RingActivity", String.format("%d more alarms set! Updating foreground notification text!", alarmPreferencesUtil.getAlarms().size()));
-            foregroundNotificationTextUtil.updateNotificationContents(this);
+            Log.d("RingActivity", String.format("%d more alarms set! Updating foreground notification text!",
+                    AlarmPreferencesUtil.getInstance(this).getSummary().getAlarmCount()));
+            ForegroundNotificationTextUtil.getInstance(this).updateNotificationContents(this);
         } else {
             Log.d("RingActivity", "No future alarms set! Stopping foreground service.");
             // No alarms set, stop the foreground service
@@ -96,46 +89,24 @@ public class RingActivity extends AppCompatActivity {
     }
 
     /**
-     * Removes the alarm that was set off from shared preferences
-     */
-    private void removeAlarmFromPreferences() {
-        Alarm alarm = getAlarm();
-        alarmPreferencesUtil.removeAlarm(alarm);
-    }
-
-    /**
-     * Gets the alarm that was set off
-     * @return Alarm object that caused the alarm
-     */
-    private Alarm getAlarm() {
-        List<Alarm> alarms = alarmPreferencesUtil.getAlarms();
-        return alarms.get(0);
-    }
-
-    /**
-     * Makes the phone vibrate and play the default ringtone
+     * Attaches to the alarm started by the AlarmReceiver, or starts it if it is not ringing yet
      */
     private void startAlarm() {
-        Log.d("RingActivity", "Starting the alarm!");
-        // Play the ringtone
-        ringtone.play();
-
-        // Vibrate the phone
-        if (vibrator != null && vibrator.hasVibrator()) {
-            // Vibrator is available and permissions are granted
-            vibrator.vibrate(VibrationEffect.createWaveform(vibrationPattern, 0));
+        long now = SystemClock.elapsedRealtime();
+        long receivedAt = getIntent().getLongExtra(AlarmReceiver.EXTRA_RECEIVED_AT_ELAPSED_MILLIS, now);
+        if (alarmSoundHandler.isRinging()) {
+            Log.d("RingActivity", String.format("Attached to ringing alarm %d ms after it was received (%d ms after the ringtone started)",
+                    now - receivedAt, now - alarmSoundHandler.getRingStartedAtElapsedMillis()));
+            return;
         }
+        Log.d("RingActivity", "Starting the alarm!");
+        alarmSoundHandler.start(receivedAt);
     }
 
     /**
      * Stops the phone's vibration and ringtone
      */
     private void stopAlarm() {
-        Log.d("RingActivity", "Stopping the alarm!");
-        // Stop the ringtone
-        ringtone.stop();
-
-        // Stop the vibration
-        vibrator.cancel();
+        alarmSoundHandler.stop();
     }
 }
\ No newline at end of file
@@ -1,125 +1,271 @@
 package com.customsolutions.automaticalarmsetter.handler;
 
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
-import android.os.Build;
 import android.util.Log;
 
-import com.customsolutions.automaticalarmsetter.model.Alarm;
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.core.AlarmScheduler;
+import com.customsolutions.automaticalarmsetter.core.history.AlarmHistoryEvent;
+import com.customsolutions.automaticalarmsetter.core.metrics.Counter;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.metrics.Timer;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmRemoval;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.port.AlarmEventListener;
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+import com.customsolutions.automaticalarmsetter.core.port.WakeupBackend;
 import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.Lazy;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Singleton class for scheduling and removing alarms
+ * Wires the AlarmScheduler to the shared preferences and the AlarmManager
  */
 public class AlarmHandler {
 
-    private static AlarmHandler instance;
     private final AlarmPreferencesUtil alarmPreferencesUtil;
+    private final Clock clock;
+    private final AlarmEventListener eventListener;
+    // Created on first use, as it needs the alarms loaded from shared preferences
+    private final Lazy<AlarmScheduler> scheduler;
+    private final Counter firedCounter;
+    private final Timer restoreTimer;
+    // Alarm that went off and was not snoozed or stopped yet, kept by compaction however long it rings
+    private final AtomicInteger ringingRequestCode = new AtomicInteger(Alarm.NO_REQUEST_CODE);
 
-    private AlarmHandler(Context context) {
-        this.alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+    public AlarmHandler(Context context) {
+        this(context, new AndroidClock(context), AlarmSetterApplication.from(context).getMetricsRegistry());
     }
 
-    public static synchronized AlarmHandler getInstance(Context context) {
-        if (instance == null) {
-            instance = new AlarmHandler(context);
-        }
-        return instance;
+    private AlarmHandler(Context context, Clock clock, MetricsRegistry metrics) {
+        this(AlarmPreferencesUtil.getInstance(context), new AlarmManagerWakeupBackend(context, clock, metrics), clock, metrics,
+                AlarmHistoryRecorder.getInstance(context));
+    }
+
+    /**
+     * @param alarmPreferencesUtil storage of the alarms
+     * @param wakeupBackend backend the alarms are registered with, e.g. a fake of the AlarmManager in host tests
+     * @param clock clock the alarms are scheduled with
+     * @param metrics registry the scheduling is recorded in
+     * @param eventListener listener recording the alarm history
+     */
+    public AlarmHandler(AlarmPreferencesUtil alarmPreferencesUtil, WakeupBackend wakeupBackend, Clock clock, MetricsRegistry metrics,
+                        AlarmEventListener eventListener) {
+        this.alarmPreferencesUtil = alarmPreferencesUtil;
+        this.clock = clock;
+        this.eventListener = eventListener;
+        this.scheduler = new Lazy<>(() -> new AlarmScheduler(alarmPreferencesUtil.getStore(), clock, wakeupBackend, metrics, eventListener));
+        this.firedCounter = metrics.counter("alarms.fired");
+        this.restoreTimer = metrics.timer("alarms.restore");
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the AlarmHandler instance
+     */
+    public static AlarmHandler getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getAlarmHandler();
+    }
+
+    /**
+     * Gets what the user should be shown about the current alarms
+     * @return status of the current alarms
+     */
+    public AlarmStatus getStatus() {
+        return alarmPreferencesUtil.getStatus();
     }
 
     /**
      * Schedules and sets a single alarm that will trigger after given amount of time
-     * @param context context of the application
      * @param triggerAfterMillis time after which to trigger the alarm in milliseconds
+     * @return The alarm that was set
      */
-    public void scheduleAlarmAfterTimeMillis(Context context, int triggerAfterMillis) {
-        Alarm alarm = Alarm.getAlarm(triggerAfterMillis);
-        scheduleAlarm(context, alarm);
+    public Alarm scheduleAlarmAfterTimeMillis(int triggerAfterMillis) {
+        return scheduler.get().scheduleAfter(triggerAfterMillis);
     }
 
     /**
      * Schedules all the alarms based on future alarm times found in shared preferences
-     * @param context context of the application
-     */
-    public void scheduleAlarmsByFutureAlarmTimes(Context context) {
-        // Iterate over alarm times if any alarms are set
-        List<Integer> futureAlarmTimes = alarmPreferencesUtil.getFutureAlarmTimes();
-        int numberOfAlarms = futureAlarmTimes.size();
-        if (numberOfAlarms > 0) {
-            Log.d("AlarmHandler", String.format("Setting %d alarms...", numberOfAlarms));
-            for (Integer alarmTime : futureAlarmTimes) {
-                Alarm alarm = Alarm.getAlarm(alarmTime);
-                scheduleAlarm(context, alarm);
-            }
-            // Remove future alarm times from shared preferences
-            alarmPreferencesUtil.removeFutureAlarmTimes();
-            Log.d("AlarmHandler", "Alarms set!");
+     * @return The alarms that were set
+     */
+    public List<Alarm> scheduleAlarmsByFutureAlarmTimes() {
+        if (!alarmPreferencesUtil.futureAlarmWillBeSet()) {
+            Log.d("AlarmHandler", "No alarms to set!");
+            return Collections.emptyList();
+        }
+        List<Alarm> alarms = scheduler.get().scheduleFutureAlarms();
+        if (alarms.isEmpty()) {
+            Log.d("AlarmHandler", "No alarms to set!");
+            return alarms;
+        }
+        Log.d("AlarmHandler", String.format("%d alarms set!", alarms.size()));
+        return alarms;
+    }
+
+    /**
+     * Adds an imported plan to shared preferences in a single write and sets its alarms in one pass
+     * @param plan plan to import
+     * @return The alarms that were set. Trigger times that already passed are dropped
+     */
+    public List<Alarm> importPlan(AlarmPlan plan) {
+        return importPlan(AlarmRemoval.NONE, plan);
+    }
+
+    /**
+     * Removes alarms and future alarm times, then adds a plan, in a single write to shared preferences.
+     * The removed alarms are cancelled and the plan's alarms are set in one pass
+     * @param removal alarms and future alarm times to remove first
+     * @param plan plan to import
+     * @return The alarms that were set. Trigger times that already passed are dropped
+     */
+    public List<Alarm> importPlan(AlarmRemoval removal, AlarmPlan plan) {
+        List<Alarm> alarms = scheduler.get().applyPlan(removal, plan);
+        Log.d("AlarmHandler", String.format("Imported %d future alarm times and set %d of %d alarms",
+                plan.getFutureAlarmTimes().size(), alarms.size(), plan.getEpochTriggerTimesMillis().size()));
+        return alarms;
+    }
+
+    /**
+     * Registers the alarms found in shared preferences with the AlarmManager again, dropping the ones that expired.
+     * Alarms set in an earlier boot are rebased on their wall clock trigger times
+     * @return The alarms that were registered again
+     */
+    public List<Alarm> rearmAlarms() {
+        long startNanos = System.nanoTime();
+        List<Alarm> alarms = scheduler.get().rearm();
+        restoreTimer.recordSince(startNanos);
+        Log.d("AlarmHandler", String.format("%d alarms re-armed!", alarms.size()));
+        return alarms;
+    }
+
+    /**
+     * Counts an alarm that went off and records it in the history. Does no I/O on the caller's thread
+     * @param requestCode request code of the alarm
+     * @param scheduledTimeMillis epoch time the alarm was scheduled for
+     * @param receivedTimeMillis epoch time the alarm was received
+     */
+    public void onAlarmFired(int requestCode, long scheduledTimeMillis, long receivedTimeMillis) {
+        ringingRequestCode.set(requestCode);
+        firedCounter.increment();
+        eventListener.onAlarmEvent(new AlarmHistoryEvent(AlarmHistoryEvent.Type.FIRED, receivedTimeMillis, requestCode, scheduledTimeMillis));
+    }
+
+    /**
+     * Recomputes the ring times of the alarms set to ring after a duration once the wall clock changed,
+     * and registers the ones that moved with the AlarmManager again
+     * @return The alarms whose ring time moved
+     */
+    public List<Alarm> onWallClockChanged() {
+        List<Alarm> alarms = scheduler.get().onWallClockChanged();
+        Log.d("AlarmHandler", String.format("%d alarms moved after the clock changed", alarms.size()));
+        return alarms;
+    }
+
+    /**
+     * Removes the alarms that went off but were never stopped or snoozed, along with their pending intents.
+     * Called on cheap triggers like the screen turning off, never on reads
+     */
+    public void compactAlarms() {
+        // Only the summary is read, and the scheduler is not created, unless there is something to compact
+        if (!AlarmScheduler.hasStaleAlarms(alarmPreferencesUtil.getSummary(), clock.currentTimeMillis())) {
             return;
         }
-        Log.d("AlarmHandler", "No alarms to set!");
-    }
-
-    /**
-     * Schedules an alarm and adds it to shared preferences
-     * @param context context of the application
-     * @param alarm alarm to schedule
-     */
-    public void scheduleAlarm(Context context, Alarm alarm) {
-        // Configure intent to hit the alarm receiver class once the alarm goes off
-        PendingIntent pendingIntent = Alarm.getPendingIntent(context, alarm);
-
-        long triggerTime = alarm.getEpochTriggerTimeMillis();
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        AlarmManager.AlarmClockInfo alarmClockInfo = new AlarmManager.AlarmClockInfo(triggerTime, pendingIntent);
-
-        // Check which build the phone has and use a function to set an alarm based on that
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            // Permissions to set exact alarms granted.
-            if (alarmManager.canScheduleExactAlarms()) {
-                alarmManager.setAlarmClock(alarmClockInfo, pendingIntent);
-            } else {
-                // Something is very wrong
-                Log.d("AlarmHandler", "Don't have permissions to set an alarm!");
-            }
-        } else {
-            // For older versions of Android. Not tested, might have unintended behaviour.
-            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+        List<Alarm> staleAlarms = scheduler.get().compact(ringingRequestCode.get());
+        if (!staleAlarms.isEmpty()) {
+            Log.d("AlarmHandler", String.format("%d stale alarms removed!", staleAlarms.size()));
+        }
+    }
+
+    /**
+     * Drops the alarms that went off without being stopped, then sets the alarms waiting for the screen to turn off.
+     * Called by the ScreenReceiver
+     * @return The alarms that were set
+     */
+    public List<Alarm> onScreenOff() {
+        compactAlarms();
+        return scheduleAlarmsByFutureAlarmTimes();
+    }
+
+    /**
+     * Snoozes the alarm ringing in the RingActivity, or sets a new alarm if it is no longer stored
+     * @param requestCode request code of the ringing alarm
+     * @param snoozeMillis time after which the alarm should ring again in milliseconds
+     * @return The snoozed or newly set alarm, null if the alarm was cancelled while it was being snoozed
+     */
+    public Alarm snoozeRingingAlarm(int requestCode, int snoozeMillis) {
+        ringingRequestCode.compareAndSet(requestCode, Alarm.NO_REQUEST_CODE);
+        Alarm alarm = alarmPreferencesUtil.getAlarm(requestCode);
+        if (alarm == null) {
+            Log.d("AlarmHandler", String.format("Alarm %d is no longer set, setting a new one", requestCode));
+            return scheduleAlarmAfterTimeMillis(snoozeMillis);
+        }
+        return snooze(alarm, snoozeMillis);
+    }
+
+    /**
+     * Removes the alarm ringing in the RingActivity once it is stopped
+     * @param requestCode request code of the ringing alarm
+     * @return Boolean indicating whether other alarms are still set
+     */
+    public boolean stopRingingAlarm(int requestCode) {
+        ringingRequestCode.compareAndSet(requestCode, Alarm.NO_REQUEST_CODE);
+        if (dismissAlarm(requestCode) == null) {
+            Log.d("AlarmHandler", String.format("Alarm %d was already removed!", requestCode));
+        }
+        return alarmPreferencesUtil.alarmSet();
+    }
+
+    /**
+     * Snoozes an alarm by moving its trigger time in place.
+     * The alarm keeps its request code, so its pending intent is re-registered instead of a new alarm being created
+     * @param alarm alarm to snooze
+     * @param snoozeMillis time after which the alarm should ring again in milliseconds
+     * @return The snoozed alarm, null if the alarm is no longer set
+     */
+    public Alarm snooze(Alarm alarm, int snoozeMillis) {
+        Alarm snoozedAlarm = scheduler.get().snooze(alarm, snoozeMillis);
+        if (snoozedAlarm == null) {
+            Log.d("AlarmHandler", String.format("Alarm %d was cancelled, not snoozing it", alarm.getRequestCode()));
+            return null;
         }
-        // Write the alarm to the shared preferences
-        alarmPreferencesUtil.addAlarm(alarm);
+        Log.d("AlarmHandler", String.format("Alarm %d snoozed for %d milliseconds", alarm.getRequestCode(), snoozeMillis));
+        return snoozedAlarm;
     }
 
     /**
      * Cancel all alarms that have been set and remove them from shared preferences
-     * @param context context of the application
-     */
-    public void cancelAlarms(Context context) {
-        List<Alarm> alarms = alarmPreferencesUtil.getAlarms();
-        int alarmsToCancel = alarms.size();
-        if (alarmsToCancel > 0) {
-            Log.d("AlarmHandler", String.format("Cancelling %d alarms...", alarmsToCancel));
-            for (Alarm alarm : alarms) {
-                cancelAlarm(context, alarm);
-            }
-            Log.d("AlarmHandler", "Alarms canceled!");
+     */
+    public void cancelAlarms() {
+        List<Alarm> alarms = scheduler.get().cancelAll();
+        if (alarms.isEmpty()) {
+            Log.d("AlarmHandler", "No alarms to cancel!");
             return;
         }
-        Log.d("AlarmHandler", "No alarms to cancel!");
+        Log.d("AlarmHandler", String.format("%d alarms canceled!", alarms.size()));
     }
 
     /**
      * Cancel an alarm and remove it from shared preferences
-     * @param context context of the application
      * @param alarm alarm to cancel
      */
-    public void cancelAlarm(Context context, Alarm alarm) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent pendingIntent = Alarm.getPendingIntent(context, alarm);
-        alarmManager.cancel(pendingIntent);
-        alarmPreferencesUtil.removeAlarm(alarm);
+    public void cancelAlarm(Alarm alarm) {
+        scheduler.get().cancel(alarm);
+    }
+
+    /**
+     * Removes an alarm that has gone off from shared preferences
+     * @param requestCode request code of the alarm
+     * @return The removed alarm, null if no alarm with the request code was set
+     */
+    public Alarm dismissAlarm(int requestCode) {
+        return scheduler.get().dismiss(requestCode);
     }
 }
@@ -0,0 +1,87 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.core.history.AlarmHistoryEvent;
+import com.customsolutions.automaticalarmsetter.core.history.AlarmHistoryLog;
+import com.customsolutions.automaticalarmsetter.core.port.AlarmEventListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton class keeping the alarm history in a bounded file.
+ * Events are appended on a single background thread, so recording never does I/O on the caller's thread
+ */
+public class AlarmHistoryRecorder implements AlarmEventListener {
+
+    private static final String FILE_NAME = "alarm_history.bin";
+    private static final int CAPACITY = 4096; // About 100 KB
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000; // Well within the 10 seconds a broadcast receiver has after goAsync()
+    private final File file;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private AlarmHistoryLog log; // Opened on first use, only accessed through getLog()
+
+    public AlarmHistoryRecorder(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the AlarmHistoryRecorder instance
+     */
+    public static AlarmHistoryRecorder getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getAlarmHistoryRecorder();
+    }
+
+    /**
+     * Appends an event to the history in the background
+     * @param event the event
+     */
+    @Override
+    public void onAlarmEvent(AlarmHistoryEvent event) {
+        executor.execute(() -> {
+            try {
+                getLog().append(event);
+            } catch (IOException e) {
+                Log.d("AlarmHistoryRecorder", "Could not record " + event + ": " + e);
+            }
+        });
+    }
+
+    /**
+     * Waits until the events recorded so far are appended, e.g. before a broadcast receiver finishes and the process may be killed.
+     * Must not be called on the main thread
+     */
+    public void flush() {
+        CountDownLatch appended = new CountDownLatch(1);
+        // The executor runs the appends in order, so the latch is counted down after the earlier events are written
+        executor.execute(appended::countDown);
+        try {
+            if (!appended.await(FLUSH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                Log.d("AlarmHistoryRecorder", String.format("History was not written within %d ms", FLUSH_TIMEOUT_MILLIS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the history, e.g. to stream it with readNewestFirst. Opens the file on first use, so it must not be called on the main thread
+     * @return the AlarmHistoryLog
+     * @throws IOException if the file cannot be opened
+     */
+    public synchronized AlarmHistoryLog getLog() throws IOException {
+        if (log == null) {
+            log = new AlarmHistoryLog(file, CAPACITY);
+        }
+        return log;
+    }
+}
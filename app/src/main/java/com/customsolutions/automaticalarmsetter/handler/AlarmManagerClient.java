@@ -0,0 +1,41 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+
+/**
+ * The AlarmManager calls made by the AlarmManagerWakeupBackend, each of which is a binder call into the system.
+ * Implemented by SystemAlarmManagerClient, host tests use a fake so the backend's own calls are counted
+ */
+public interface AlarmManagerClient {
+
+    /**
+     * Checks whether exact alarms may be set. Can change at any time, as the user can revoke the permission
+     * @return whether exact alarms may be set
+     */
+    boolean canScheduleExactAlarms();
+
+    /**
+     * Registers an alarm clock that rings at the alarm's trigger time. An alarm with the same request code is replaced
+     * @param alarm alarm to register
+     */
+    void setAlarmClock(Alarm alarm);
+
+    /**
+     * Registers the preparation of the alarm's sound. A preparation for the same request code is replaced
+     * @param alarm alarm whose sound to prepare
+     * @param prewarmTimeMillis epoch time at which to prepare the sound
+     */
+    void setPrewarm(Alarm alarm, long prewarmTimeMillis);
+
+    /**
+     * Removes the registration of an alarm clock
+     * @param alarm alarm to unregister
+     */
+    void cancelAlarmClock(Alarm alarm);
+
+    /**
+     * Removes the registration of the preparation of an alarm's sound
+     * @param alarm alarm whose preparation to unregister
+     */
+    void cancelPrewarm(Alarm alarm);
+}
@@ -0,0 +1,96 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.core.metrics.Counter;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.metrics.Timer;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+import com.customsolutions.automaticalarmsetter.core.port.WakeupBackend;
+
+/**
+ * WakeupBackend that registers alarms with the AlarmManager.
+ * Each alarm also gets a preparation of its sound shortly before it rings.
+ * Every call to the AlarmManagerClient is counted under 'alarmManager.binderCalls'
+ */
+public class AlarmManagerWakeupBackend implements WakeupBackend {
+
+    public static final long PREWARM_LEAD_TIME_MILLIS = 30 * 1000; // How long before the alarm rings its sound is prepared
+    private final AlarmManagerClient alarmManager;
+    private final Clock clock;
+    private final Runnable soundPreparation;
+    private final Counter binderCallCounter;
+    private final Timer armTimer;
+
+    public AlarmManagerWakeupBackend(Context context, Clock clock, MetricsRegistry metrics) {
+        this(new SystemAlarmManagerClient(context), clock, () -> AlarmSoundHandler.getInstance(context).prepare(), metrics);
+    }
+
+    /**
+     * @param alarmManager client making the AlarmManager calls, e.g. a fake in host tests
+     * @param clock clock telling whether the sound has to be prepared right away
+     * @param soundPreparation prepares the alarm sound right away, for alarms ringing sooner than the lead time
+     * @param metrics registry the calls are counted in
+     */
+    public AlarmManagerWakeupBackend(AlarmManagerClient alarmManager, Clock clock, Runnable soundPreparation, MetricsRegistry metrics) {
+        this.alarmManager = alarmManager;
+        this.clock = clock;
+        this.soundPreparation = soundPreparation;
+        this.binderCallCounter = metrics.counter("alarmManager.binderCalls");
+        this.armTimer = metrics.timer("alarmManager.arm");
+    }
+
+    /**
+     * Registers an alarm with the AlarmManager. An alarm with the same request code is replaced
+     * @param alarm alarm to register
+     */
+    @Override
+    public void arm(Alarm alarm) {
+        long startNanos = System.nanoTime();
+        // Checked once per alarm, for the alarm and its sound preparation
+        boolean canScheduleExactAlarms = alarmManager.canScheduleExactAlarms();
+        binderCallCounter.increment();
+        if (canScheduleExactAlarms) {
+            alarmManager.setAlarmClock(alarm);
+            binderCallCounter.increment();
+        } else {
+            // Something is very wrong
+            Log.d("AlarmManagerWakeupBackend", "Don't have permissions to set an alarm!");
+        }
+        schedulePrewarm(alarm, canScheduleExactAlarms);
+        armTimer.recordSince(startNanos);
+    }
+
+    /**
+     * Removes an alarm and its sound preparation from the AlarmManager
+     * @param alarm alarm to unregister
+     */
+    @Override
+    public void cancel(Alarm alarm) {
+        alarmManager.cancelAlarmClock(alarm);
+        alarmManager.cancelPrewarm(alarm);
+        binderCallCounter.add(2);
+    }
+
+    /**
+     * Schedules the preparation of the alarm's sound shortly before the alarm rings
+     * If the alarm rings sooner than the lead time, the sound is prepared right away
+     * @param alarm alarm whose sound to prepare
+     * @param canScheduleExactAlarms whether exact alarms may be set
+     */
+    private void schedulePrewarm(Alarm alarm, boolean canScheduleExactAlarms) {
+        long prewarmTime = alarm.getEpochTriggerTimeMillis() - PREWARM_LEAD_TIME_MILLIS;
+        if (prewarmTime <= clock.currentTimeMillis()) {
+            soundPreparation.run();
+            return;
+        }
+        if (!canScheduleExactAlarms) {
+            // The sound will be prepared once the alarm goes off
+            return;
+        }
+        alarmManager.setPrewarm(alarm, prewarmTime);
+        binderCallCounter.increment();
+    }
+}
@@ -0,0 +1,116 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import android.content.Context;
+import android.media.Ringtone;
+import android.media.RingtoneManager;
+import android.os.SystemClock;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+
+/**
+ * Singleton class that owns the alarm's ringtone and vibration.
+ * The sound is resolved ahead of time (pre-warmed) so that it can start playing as soon as the alarm fires,
+ * without waiting for the RingActivity to start.
+ */
+public class AlarmSoundHandler {
+
+    private static final long[] vibrationPattern = {0, 1000, 500}; // delay before starting, vibration duration, time before next vibration
+    private final Context context;
+    private Ringtone ringtone;
+    private Vibrator vibrator;
+    private boolean ringing = false;
+    private long ringStartedAtElapsedMillis;
+
+    public AlarmSoundHandler(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the AlarmSoundHandler instance
+     */
+    public static AlarmSoundHandler getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getAlarmSoundHandler();
+    }
+
+    /**
+     * Resolves the alarm ringtone and the vibrator so that starting the alarm later does not have to
+     * Does nothing if the sound has already been prepared
+     */
+    public synchronized void prepare() {
+        if (ringtone != null) {
+            Log.d("AlarmSoundHandler", "Alarm sound already prepared!");
+            return;
+        }
+        long startTime = SystemClock.elapsedRealtime();
+        ringtone = RingtoneManager.getRingtone(context, RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM));
+        vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        Log.d("AlarmSoundHandler", String.format("Alarm sound prepared in %d ms", SystemClock.elapsedRealtime() - startTime));
+    }
+
+    /**
+     * Makes the phone vibrate and play the default alarm ringtone
+     * Does nothing if the alarm is already ringing
+     * @param receivedAtElapsedMillis elapsed realtime at which the alarm was received, used for measuring the latency
+     */
+    public synchronized void start(long receivedAtElapsedMillis) {
+        if (ringing) {
+            Log.d("AlarmSoundHandler", "Alarm is already ringing!");
+            // The new alarm is audible right away, so its trace completes now instead of being left waiting for the next alarm
+            RingLatencyTracer.getInstance(context).onRingtonePlaying(System.currentTimeMillis());
+            return;
+        }
+        boolean prewarmed = ringtone != null;
+        prepare();
+
+        // Play the ringtone
+        ringtone.play();
+        ringStartedAtElapsedMillis = SystemClock.elapsedRealtime();
+        RingLatencyTracer.getInstance(context).onRingtonePlaying(System.currentTimeMillis());
+        ringing = true;
+
+        // Vibrate the phone
+        if (vibrator != null && vibrator.hasVibrator()) {
+            // Vibrator is available and permissions are granted
+            vibrator.vibrate(VibrationEffect.createWaveform(vibrationPattern, 0));
+        }
+        Log.d("AlarmSoundHandler", String.format("Ringtone playing %d ms after the alarm was received (prewarmed: %b)",
+                ringStartedAtElapsedMillis - receivedAtElapsedMillis, prewarmed));
+    }
+
+    /**
+     * Stops the phone's vibration and ringtone and releases them
+     */
+    public synchronized void stop() {
+        Log.d("AlarmSoundHandler", "Stopping the alarm!");
+        if (ringtone != null) {
+            ringtone.stop();
+            ringtone = null;
+        }
+        if (vibrator != null) {
+            vibrator.cancel();
+            vibrator = null;
+        }
+        ringing = false;
+    }
+
+    /**
+     * Checks whether the alarm is currently ringing
+     * @return Boolean indicating whether the ringtone is playing
+     */
+    public synchronized boolean isRinging() {
+        return ringing;
+    }
+
+    /**
+     * Gets the elapsed realtime at which the ringtone started playing
+     * @return elapsed realtime in milliseconds, only meaningful while the alarm is ringing
+     */
+    public synchronized long getRingStartedAtElapsedMillis() {
+        return ringStartedAtElapsedMillis;
+    }
+}
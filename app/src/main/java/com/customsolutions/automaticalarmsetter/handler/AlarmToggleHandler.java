@@ -0,0 +1,98 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.core.metrics.Timer;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmRemoval;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.service.ForegroundAlarmSetterService;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.SettingsPreferencesUtil;
+
+import java.util.Collections;
+
+/**
+ * Singleton class for arming and disarming with a single tap, without going through the MainActivity.
+ * The time from the tap until the foreground service has started is measured against a budget
+ */
+public class AlarmToggleHandler {
+
+    public static final long TAP_TO_SERVICE_STARTED_BUDGET_MILLIS = 300;
+    private static final String EXTRA_TAPPED_AT_ELAPSED_NANOS = "tappedAtElapsedNanos";
+
+    private final Context context;
+    private final Timer tapToServiceStartedTimer;
+
+    public AlarmToggleHandler(Context context) {
+        this.context = context.getApplicationContext();
+        this.tapToServiceStartedTimer = AlarmSetterApplication.from(context).getMetricsRegistry().timer("toggle.tapToServiceStarted");
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the AlarmToggleHandler instance
+     */
+    public static AlarmToggleHandler getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getAlarmToggleHandler();
+    }
+
+    /**
+     * Cancels all alarms that are or will be set, or arms the last used duration if there are none.
+     * The tile or widget may be tapped while the app is in the background, so the service is started as a foreground service.
+     * If the system still refuses, the duration is removed again, as nothing would set the alarm once the screen turns off.
+     * Does I/O, so it must not be called on the main thread
+     * @param tappedAtElapsedNanos SystemClock.elapsedRealtimeNanos() when the user tapped
+     * @return whether an alarm is armed afterwards
+     */
+    public boolean toggle(long tappedAtElapsedNanos) {
+        AlarmPreferencesUtil alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+        Intent serviceIntent = new Intent(context, ForegroundAlarmSetterService.class);
+        if (alarmPreferencesUtil.getStatus().getKind() != AlarmStatus.Kind.NO_ALARM) {
+            Log.d("AlarmToggleHandler", "Disarming...");
+            // Alarms and future alarm times are removed in one update, so the service never sees only half of them removed
+            AlarmHandler.getInstance(context).importPlan(new AlarmRemoval(true, Collections.<Integer>emptySet(), true),
+                    new AlarmPlan(Collections.<Integer>emptyList(), Collections.<Long>emptyList()));
+            context.stopService(serviceIntent);
+            return false;
+        }
+        int duration = SettingsPreferencesUtil.getInstance(context).getLastAlarmDurationMillis();
+        Log.d("AlarmToggleHandler", String.format("Arming with the last used duration of %d milliseconds", duration));
+        alarmPreferencesUtil.addFutureAlarmTime(duration);
+        serviceIntent.putExtra(EXTRA_TAPPED_AT_ELAPSED_NANOS, tappedAtElapsedNanos);
+        try {
+            context.startForegroundService(serviceIntent);
+        } catch (IllegalStateException e) {
+            Log.d("AlarmToggleHandler", "Could not start the foreground service: " + e);
+            // Only the added duration is removed, in case another caller armed in the meantime
+            AlarmHandler.getInstance(context).importPlan(AlarmRemoval.undoing(Collections.<Alarm>emptyList(), Collections.singletonList(duration)),
+                    new AlarmPlan(Collections.<Integer>emptyList(), Collections.<Long>emptyList()));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records how long ago the tap that started the service happened. Called once the service is in the foreground
+     * @param intent intent the service was started with
+     */
+    public void recordServiceStarted(Intent intent) {
+        if (intent == null || !intent.hasExtra(EXTRA_TAPPED_AT_ELAPSED_NANOS)) {
+            return;
+        }
+        long elapsedNanos = SystemClock.elapsedRealtimeNanos() - intent.getLongExtra(EXTRA_TAPPED_AT_ELAPSED_NANOS, 0);
+        tapToServiceStartedTimer.record(elapsedNanos);
+        long elapsedMillis = elapsedNanos / 1000000;
+        if (elapsedMillis > TAP_TO_SERVICE_STARTED_BUDGET_MILLIS) {
+            Log.d("AlarmToggleHandler", String.format("Service started %d ms after the tap, over the budget of %d ms", elapsedMillis, TAP_TO_SERVICE_STARTED_BUDGET_MILLIS));
+            return;
+        }
+        Log.d("AlarmToggleHandler", String.format("Service started %d ms after the tap", elapsedMillis));
+    }
+}
@@ -0,0 +1,43 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.SystemClock;
+import android.provider.Settings;
+
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+import com.customsolutions.automaticalarmsetter.util.Lazy;
+
+/**
+ * Clock reading the wall clock and Android's elapsed realtime, which keeps counting in deep sleep.
+ * The boot count is read from the global settings once, as it does not change while the process runs
+ */
+public class AndroidClock implements Clock {
+
+    private static final int DEFAULT_BOOT_COUNT = 0; // Every boot looks the same, as before boots were recorded
+    private final ContentResolver contentResolver;
+    private final Lazy<Integer> bootCount = new Lazy<>(this::readBootCount);
+
+    public AndroidClock(Context context) {
+        this.contentResolver = context.getApplicationContext().getContentResolver();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long elapsedRealtimeMillis() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public int bootCount() {
+        return bootCount.get();
+    }
+
+    private Integer readBootCount() {
+        return Settings.Global.getInt(contentResolver, Settings.Global.BOOT_COUNT, DEFAULT_BOOT_COUNT);
+    }
+}
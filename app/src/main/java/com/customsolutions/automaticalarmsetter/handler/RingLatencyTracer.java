@@ -0,0 +1,142 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.model.RingLatencyRecord;
+import com.customsolutions.automaticalarmsetter.model.RingLatencySummary;
+import com.customsolutions.automaticalarmsetter.util.RingLatencyLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Singleton class that collects the timestamps of the alarm that is currently ringing
+ * Once every hop has been recorded the trace is appended to a bounded RingLatencyLog on a single background thread,
+ * so the RingActivity and the AlarmSoundHandler only record a timestamp on the main thread
+ */
+public class RingLatencyTracer {
+
+    private static final String FILE_NAME = "ring_latency.bin";
+    private static final String LEGACY_PREFERENCES_NAME = "RingLatencyPreferences"; // JSON list written by older versions
+    public static final int MAX_RECORDS = 200;
+    private static final long NOT_RECORDED = -1;
+    private final Context context;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private RingLatencyLog log; // Opened on first use, only accessed on the executor
+    private long scheduledTimeMillis = NOT_RECORDED;
+    private long receivedTimeMillis = NOT_RECORDED;
+    private long activityCreatedTimeMillis = NOT_RECORDED;
+    private long ringtonePlayingTimeMillis = NOT_RECORDED;
+
+    public RingLatencyTracer(Context context) {
+        // Even resolving the files directory touches the disk, so it is left to the executor
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the RingLatencyTracer instance
+     */
+    public static RingLatencyTracer getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getRingLatencyTracer();
+    }
+
+    /**
+     * Starts a new trace. Called when the AlarmReceiver receives the alarm
+     * @param scheduledTimeMillis epoch time the alarm was scheduled for
+     * @param receivedTimeMillis epoch time the alarm was received
+     */
+    public synchronized void onAlarmReceived(long scheduledTimeMillis, long receivedTimeMillis) {
+        this.scheduledTimeMillis = scheduledTimeMillis;
+        this.receivedTimeMillis = receivedTimeMillis;
+        activityCreatedTimeMillis = NOT_RECORDED;
+        ringtonePlayingTimeMillis = NOT_RECORDED;
+    }
+
+    /**
+     * Records the time the ringtone started playing
+     * @param timeMillis epoch time when ringtone.play() returned
+     */
+    public synchronized void onRingtonePlaying(long timeMillis) {
+        ringtonePlayingTimeMillis = timeMillis;
+        storeIfComplete();
+    }
+
+    /**
+     * Records the time the RingActivity was created
+     * @param timeMillis epoch time when RingActivity.onCreate ran
+     */
+    public synchronized void onActivityCreated(long timeMillis) {
+        activityCreatedTimeMillis = timeMillis;
+        storeIfComplete();
+    }
+
+    /**
+     * Hands the trace to the executor once all of its timestamps have been recorded and resets the tracer
+     */
+    private void storeIfComplete() {
+        if (receivedTimeMillis == NOT_RECORDED || activityCreatedTimeMillis == NOT_RECORDED || ringtonePlayingTimeMillis == NOT_RECORDED) {
+            return;
+        }
+        RingLatencyRecord record = new RingLatencyRecord(scheduledTimeMillis, receivedTimeMillis, activityCreatedTimeMillis, ringtonePlayingTimeMillis);
+        executor.execute(() -> {
+            Log.d("RingLatencyTracer", String.format("Alarm received %d ms, activity created %d ms and ringtone playing %d ms after the scheduled time",
+                    record.getReceivedTimeMillis() - record.getScheduledTimeMillis(),
+                    record.getActivityCreatedTimeMillis() - record.getScheduledTimeMillis(), record.getLatenessMillis()));
+            try {
+                getLog().append(record);
+            } catch (IOException e) {
+                Log.d("RingLatencyTracer", "Could not store the ring latency: " + e);
+            }
+        });
+
+        scheduledTimeMillis = NOT_RECORDED;
+        receivedTimeMillis = NOT_RECORDED;
+        activityCreatedTimeMillis = NOT_RECORDED;
+        ringtonePlayingTimeMillis = NOT_RECORDED;
+    }
+
+    /**
+     * Gets the stored records once the ones handed to the executor are appended. Reads the file, so it must not be called on the main thread
+     * @return List of records, oldest first. Empty if the file cannot be read
+     */
+    public List<RingLatencyRecord> getRecords() {
+        try {
+            return executor.submit(() -> getLog().readAll()).get();
+        } catch (ExecutionException e) {
+            Log.d("RingLatencyTracer", "Could not read the ring latency: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Gets the percentile summary of the stored records. Must not be called on the main thread
+     * @return Summary of the ring latency
+     */
+    public RingLatencySummary getSummary() {
+        return RingLatencySummary.fromRecords(getRecords());
+    }
+
+    /**
+     * Gets the log, opening it and removing the preference file of older versions on first use. Only called on the executor
+     * @return the RingLatencyLog
+     * @throws IOException if the file cannot be opened
+     */
+    private RingLatencyLog getLog() throws IOException {
+        if (log == null) {
+            context.deleteSharedPreferences(LEGACY_PREFERENCES_NAME);
+            log = new RingLatencyLog(new File(context.getFilesDir(), FILE_NAME), MAX_RECORDS);
+        }
+        return log;
+    }
+}
@@ -0,0 +1,75 @@
+package com.customsolutions.automaticalarmsetter.handler;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.receiver.AlarmReceiver;
+
+/**
+ * AlarmManagerClient calling the system's AlarmManager with pending intents directed at the AlarmReceiver
+ */
+public class SystemAlarmManagerClient implements AlarmManagerClient {
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+
+    public SystemAlarmManagerClient(Context context) {
+        this.context = context.getApplicationContext();
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    @Override
+    public boolean canScheduleExactAlarms() {
+        // Exact alarms need no permission before Android 12
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+    }
+
+    @Override
+    public void setAlarmClock(Alarm alarm) {
+        PendingIntent pendingIntent = getPendingIntent(context, alarm);
+        alarmManager.setAlarmClock(new AlarmManager.AlarmClockInfo(alarm.getEpochTriggerTimeMillis(), pendingIntent), pendingIntent);
+    }
+
+    @Override
+    public void setPrewarm(Alarm alarm, long prewarmTimeMillis) {
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, prewarmTimeMillis, getPrewarmPendingIntent(context, alarm));
+    }
+
+    @Override
+    public void cancelAlarmClock(Alarm alarm) {
+        alarmManager.cancel(getPendingIntent(context, alarm));
+    }
+
+    @Override
+    public void cancelPrewarm(Alarm alarm) {
+        alarmManager.cancel(getPrewarmPendingIntent(context, alarm));
+    }
+
+    /**
+     * Get the pending intent that is fired once the alarm goes off
+     * FLAG_UPDATE_CURRENT makes sure the extras match the alarm even if a pending intent with the same request code exists
+     * @param context context of the application
+     * @param alarm alarm the pending intent is for
+     * @return PendingIntent directed at the AlarmReceiver
+     */
+    private static PendingIntent getPendingIntent(Context context, Alarm alarm) {
+        return PendingIntent.getBroadcast(context, alarm.getRequestCode(), AlarmReceiver.getIntent(context, alarm),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    /**
+     * Get the pending intent that prepares the alarm's sound shortly before the alarm rings
+     * The intent has its own action so it does not collide with the alarm's own pending intent
+     * @param context context of the application
+     * @param alarm alarm whose sound to prepare
+     * @return PendingIntent directed at the AlarmReceiver with the prewarm action
+     */
+    private static PendingIntent getPrewarmPendingIntent(Context context, Alarm alarm) {
+        Intent intent = AlarmReceiver.getIntent(context).setAction(AlarmReceiver.ACTION_PREWARM);
+        return PendingIntent.getBroadcast(context, alarm.getRequestCode(), intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+}
@@ -0,0 +1,87 @@
+package com.customsolutions.automaticalarmsetter.model;
+
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+
+import java.util.Objects;
+
+/**
+ * Immutable content of the home-screen widget: whether an alarm is armed, the status line and the label of the toggle button
+ */
+public class AlarmWidgetContent {
+
+    /**
+     * Resource strings the content is built from, read once by the caller
+     */
+    public static class Texts {
+        private final String alarmIsSetFormat;
+        private final String alarmWillBeSetFormat;
+        private final String noAlarmText;
+        private final String armButtonText;
+        private final String cancelButtonText;
+
+        public Texts(String alarmIsSetFormat, String alarmWillBeSetFormat, String noAlarmText, String armButtonText, String cancelButtonText) {
+            this.alarmIsSetFormat = alarmIsSetFormat;
+            this.alarmWillBeSetFormat = alarmWillBeSetFormat;
+            this.noAlarmText = noAlarmText;
+            this.armButtonText = armButtonText;
+            this.cancelButtonText = cancelButtonText;
+        }
+    }
+
+    private final boolean armed;
+    private final String statusText;
+    private final String buttonText;
+
+    public AlarmWidgetContent(boolean armed, String statusText, String buttonText) {
+        this.armed = armed;
+        this.statusText = statusText;
+        this.buttonText = buttonText;
+    }
+
+    /**
+     * Builds the content shown for an alarm status
+     * @param status status of the alarms
+     * @param texts resource strings
+     * @return content of the widget
+     */
+    public static AlarmWidgetContent of(AlarmStatus status, Texts texts) {
+        switch (status.getKind()) {
+            case ALARM_SET:
+                String ringTimeString = TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(status.getNextAlarm().getEpochTriggerTimeMillis());
+                return new AlarmWidgetContent(true, String.format(texts.alarmIsSetFormat, ringTimeString), texts.cancelButtonText);
+            case ALARM_WILL_BE_SET:
+                String timeString = TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(status.getFutureAlarmTime());
+                return new AlarmWidgetContent(true, String.format(texts.alarmWillBeSetFormat, timeString), texts.cancelButtonText);
+            default:
+                return new AlarmWidgetContent(false, texts.noAlarmText, texts.armButtonText);
+        }
+    }
+
+    public boolean isArmed() {
+        return armed;
+    }
+
+    public String getStatusText() {
+        return statusText;
+    }
+
+    public String getButtonText() {
+        return buttonText;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AlarmWidgetContent otherContent = (AlarmWidgetContent) o;
+        return armed == otherContent.armed &&
+                statusText.equals(otherContent.statusText) &&
+                buttonText.equals(otherContent.buttonText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(armed, statusText, buttonText);
+    }
+}
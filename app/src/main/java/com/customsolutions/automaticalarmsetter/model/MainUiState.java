@@ -0,0 +1,53 @@
+package com.customsolutions.automaticalarmsetter.model;
+
+import java.util.Objects;
+
+/**
+ * Immutable state of the MainActivity's views
+ */
+public class MainUiState {
+
+    private final String buttonText;
+    private final boolean buttonEnabled;
+    private final String statusText;
+    private final boolean numberPickersEnabled;
+
+    public MainUiState(String buttonText, boolean buttonEnabled, String statusText, boolean numberPickersEnabled) {
+        this.buttonText = buttonText;
+        this.buttonEnabled = buttonEnabled;
+        this.statusText = statusText;
+        this.numberPickersEnabled = numberPickersEnabled;
+    }
+
+    public String getButtonText() {
+        return buttonText;
+    }
+
+    public boolean isButtonEnabled() {
+        return buttonEnabled;
+    }
+
+    public String getStatusText() {
+        return statusText;
+    }
+
+    public boolean isNumberPickersEnabled() {
+        return numberPickersEnabled;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MainUiState otherState = (MainUiState) o;
+        return buttonEnabled == otherState.buttonEnabled &&
+                numberPickersEnabled == otherState.numberPickersEnabled &&
+                buttonText.equals(otherState.buttonText) &&
+                statusText.equals(otherState.statusText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(buttonText, buttonEnabled, statusText, numberPickersEnabled);
+    }
+}
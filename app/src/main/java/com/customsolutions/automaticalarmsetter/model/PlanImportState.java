@@ -0,0 +1,70 @@
+package com.customsolutions.automaticalarmsetter.model;
+
+import java.util.Objects;
+
+/**
+ * Immutable state of an alarm plan import shown by the MainActivity:
+ * nothing to show, a plan waiting for the user to confirm it, or an import that failed
+ */
+public class PlanImportState {
+
+    public enum Kind {
+        NONE,
+        CONFIRMATION_NEEDED,
+        FAILED
+    }
+
+    public static final PlanImportState NONE = new PlanImportState(Kind.NONE, "");
+
+    private final Kind kind;
+    private final String messageText;
+
+    private PlanImportState(Kind kind, String messageText) {
+        this.kind = kind;
+        this.messageText = messageText;
+    }
+
+    /**
+     * Creates the state of a plan that is read but not imported yet
+     * @param descriptionText description of the plan shown to the user
+     * @return the state
+     */
+    public static PlanImportState confirmationNeeded(String descriptionText) {
+        return new PlanImportState(Kind.CONFIRMATION_NEEDED, descriptionText);
+    }
+
+    /**
+     * Creates the state of an import that failed
+     * @param errorText why the import failed, shown to the user
+     * @return the state
+     */
+    public static PlanImportState failed(String errorText) {
+        return new PlanImportState(Kind.FAILED, errorText);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the text to show the user
+     * @return description of the plan, the reason of the failure, or an empty string if the kind is NONE
+     */
+    public String getMessageText() {
+        return messageText;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PlanImportState otherState = (PlanImportState) o;
+        return kind == otherState.kind &&
+                messageText.equals(otherState.messageText);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, messageText);
+    }
+}
@@ -0,0 +1,44 @@
+package com.customsolutions.automaticalarmsetter.model;
+
+/**
+ * Timestamps of a single alarm on its way from the AlarmManager to an audible ringtone
+ * All times are epoch times in milliseconds
+ */
+public class RingLatencyRecord {
+
+    private final long scheduledTimeMillis;
+    private final long receivedTimeMillis;
+    private final long activityCreatedTimeMillis;
+    private final long ringtonePlayingTimeMillis;
+
+    public RingLatencyRecord(long scheduledTimeMillis, long receivedTimeMillis, long activityCreatedTimeMillis, long ringtonePlayingTimeMillis) {
+        this.scheduledTimeMillis = scheduledTimeMillis;
+        this.receivedTimeMillis = receivedTimeMillis;
+        this.activityCreatedTimeMillis = activityCreatedTimeMillis;
+        this.ringtonePlayingTimeMillis = ringtonePlayingTimeMillis;
+    }
+
+    /**
+     * Get how late the alarm became audible compared to the time it was scheduled for
+     * @return lateness in milliseconds
+     */
+    public long getLatenessMillis() {
+        return ringtonePlayingTimeMillis - scheduledTimeMillis;
+    }
+
+    public long getScheduledTimeMillis() {
+        return scheduledTimeMillis;
+    }
+
+    public long getReceivedTimeMillis() {
+        return receivedTimeMillis;
+    }
+
+    public long getActivityCreatedTimeMillis() {
+        return activityCreatedTimeMillis;
+    }
+
+    public long getRingtonePlayingTimeMillis() {
+        return ringtonePlayingTimeMillis;
+    }
+}
@@ -0,0 +1,83 @@
+package com.customsolutions.automaticalarmsetter.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Percentile summary of how late alarms became audible compared to their scheduled time
+ */
+public class RingLatencySummary {
+
+    private final int count;
+    private final long p50LatenessMillis;
+    private final long p95LatenessMillis;
+    private final long p99LatenessMillis;
+    private final long maxLatenessMillis;
+
+    private RingLatencySummary(int count, long p50LatenessMillis, long p95LatenessMillis, long p99LatenessMillis, long maxLatenessMillis) {
+        this.count = count;
+        this.p50LatenessMillis = p50LatenessMillis;
+        this.p95LatenessMillis = p95LatenessMillis;
+        this.p99LatenessMillis = p99LatenessMillis;
+        this.maxLatenessMillis = maxLatenessMillis;
+    }
+
+    /**
+     * Computes the summary of the given records
+     * @param records records to summarize
+     * @return summary of the records' lateness, all zeros if there are no records
+     */
+    public static RingLatencySummary fromRecords(List<RingLatencyRecord> records) {
+        long[] lateness = new long[records.size()];
+        for (int i = 0; i < lateness.length; i++) {
+            lateness[i] = records.get(i).getLatenessMillis();
+        }
+        Arrays.sort(lateness);
+        return new RingLatencySummary(lateness.length,
+                percentile(lateness, 50),
+                percentile(lateness, 95),
+                percentile(lateness, 99),
+                lateness.length > 0 ? lateness[lateness.length - 1] : 0);
+    }
+
+    /**
+     * Gets a percentile of sorted values using the nearest-rank method
+     * @param sortedValues values sorted in ascending order
+     * @param percentile percentile to get (0-100)
+     * @return value at the percentile, 0 if there are no values
+     */
+    private static long percentile(long[] sortedValues, int percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getP50LatenessMillis() {
+        return p50LatenessMillis;
+    }
+
+    public long getP95LatenessMillis() {
+        return p95LatenessMillis;
+    }
+
+    public long getP99LatenessMillis() {
+        return p99LatenessMillis;
+    }
+
+    public long getMaxLatenessMillis() {
+        return maxLatenessMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "alarms=%d p50=%dms p95=%dms p99=%dms max=%dms",
+                count, p50LatenessMillis, p95LatenessMillis, p99LatenessMillis, maxLatenessMillis);
+    }
+}
@@ -0,0 +1,58 @@
+package com.customsolutions.automaticalarmsetter.provider;
+
+import android.net.Uri;
+
+/**
+ * Contract of the AlarmProvider, for automation apps querying and arming alarms.
+ * Callers need the ACCESS_ALARMS permission
+ */
+public final class AlarmContract {
+
+    public static final String AUTHORITY = "com.customsolutions.automaticalarmsetter.alarms";
+    public static final Uri AUTHORITY_URI = Uri.parse("content://" + AUTHORITY);
+    public static final String PERMISSION = "com.customsolutions.automaticalarmsetter.permission.ACCESS_ALARMS";
+
+    // Paging for callers that cannot pass ContentResolver.QUERY_ARG_LIMIT and QUERY_ARG_OFFSET
+    public static final String PARAM_LIMIT = "limit";
+    public static final String PARAM_OFFSET = "offset";
+
+    private AlarmContract() {
+
+    }
+
+    /**
+     * Alarms that are set. Inserting arms an alarm at an epoch time, deleting cancels it
+     */
+    public static final class Alarms {
+        public static final String PATH = "alarms";
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(AUTHORITY_URI, PATH);
+        public static final String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.com.customsolutions.automaticalarmsetter.alarm";
+        public static final String CONTENT_ITEM_TYPE = "vnd.android.cursor.item/vnd.com.customsolutions.automaticalarmsetter.alarm";
+
+        public static final String COLUMN_ID = "_id"; // Same as the request code
+        public static final String COLUMN_REQUEST_CODE = "request_code";
+        public static final String COLUMN_EPOCH_TRIGGER_TIME_MILLIS = "epoch_trigger_time_millis";
+        public static final String[] DEFAULT_PROJECTION = {COLUMN_ID, COLUMN_REQUEST_CODE, COLUMN_EPOCH_TRIGGER_TIME_MILLIS};
+
+        private Alarms() {
+
+        }
+    }
+
+    /**
+     * Durations after which alarms are set once the screen turns off. Inserting adds a duration, deleting the table removes all of them
+     */
+    public static final class FutureAlarmTimes {
+        public static final String PATH = "future_alarm_times";
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(AUTHORITY_URI, PATH);
+        public static final String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.com.customsolutions.automaticalarmsetter.future_alarm_time";
+
+        public static final String COLUMN_ID = "_id"; // Position in the list
+        public static final String COLUMN_DURATION_MILLIS = "duration_millis";
+        public static final String[] DEFAULT_PROJECTION = {COLUMN_ID, COLUMN_DURATION_MILLIS};
+
+        private FutureAlarmTimes() {
+
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.customsolutions.automaticalarmsetter.provider;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.content.OperationApplicationException;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmRemoval;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.service.ForegroundAlarmSetterService;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.ForegroundNotificationTextUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Permission-protected provider letting automation apps query the alarms and arm or cancel them.
+ * Queries are answered from the in-memory alarm state. Deletes and inserts, including bulk inserts and batches, are collected into
+ * a single AlarmRemoval and AlarmPlan, so any number of rows results in one write to the shared preferences and one bulk schedule.
+ * Selections and sort orders are not supported and are rejected, rows are returned in the order they were added
+ */
+public class AlarmProvider extends ContentProvider {
+
+    private static final int MATCH_ALARMS = 1;
+    private static final int MATCH_ALARM = 2;
+    private static final int MATCH_FUTURE_ALARM_TIMES = 3;
+    private static final UriMatcher URI_MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
+    private static final String[] UNSUPPORTED_QUERY_ARGS = {ContentResolver.QUERY_ARG_SQL_SELECTION, ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS,
+            ContentResolver.QUERY_ARG_SQL_SORT_ORDER, ContentResolver.QUERY_ARG_SORT_COLUMNS};
+    // Changes of the batch being applied on the current thread, null outside of applyBatch
+    private final ThreadLocal<Changes> batchChanges = new ThreadLocal<>();
+
+    static {
+        URI_MATCHER.addURI(AlarmContract.AUTHORITY, AlarmContract.Alarms.PATH, MATCH_ALARMS);
+        URI_MATCHER.addURI(AlarmContract.AUTHORITY, AlarmContract.Alarms.PATH + "/#", MATCH_ALARM);
+        URI_MATCHER.addURI(AlarmContract.AUTHORITY, AlarmContract.FutureAlarmTimes.PATH, MATCH_FUTURE_ALARM_TIMES);
+    }
+
+    @Override
+    public boolean onCreate() {
+        // Nothing is loaded until the first call
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        switch (URI_MATCHER.match(uri)) {
+            case MATCH_ALARMS:
+                return AlarmContract.Alarms.CONTENT_TYPE;
+            case MATCH_ALARM:
+                return AlarmContract.Alarms.CONTENT_ITEM_TYPE;
+            case MATCH_FUTURE_ALARM_TIMES:
+                return AlarmContract.FutureAlarmTimes.CONTENT_TYPE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Legacy query, paged with the limit and offset query parameters of the uri
+     */
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        checkNoSelection(selection, selectionArgs, sortOrder);
+        Bundle queryArgs = new Bundle();
+        String limit = uri.getQueryParameter(AlarmContract.PARAM_LIMIT);
+        String offset = uri.getQueryParameter(AlarmContract.PARAM_OFFSET);
+        try {
+            if (limit != null) {
+                queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, Integer.parseInt(limit));
+            }
+            if (offset != null) {
+                queryArgs.putInt(ContentResolver.QUERY_ARG_OFFSET, Integer.parseInt(offset));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid paging parameters in " + uri);
+        }
+        return query(uri, projection, queryArgs, null);
+    }
+
+    /**
+     * Queries the alarms or the future alarm times, paged with ContentResolver.QUERY_ARG_LIMIT and QUERY_ARG_OFFSET
+     */
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable Bundle queryArgs, @Nullable CancellationSignal cancellationSignal) {
+        if (queryArgs != null) {
+            for (String queryArg : UNSUPPORTED_QUERY_ARGS) {
+                if (queryArgs.containsKey(queryArg)) {
+                    throw new IllegalArgumentException(queryArg + " is not supported, rows are returned in the order they were added");
+                }
+            }
+        }
+        int match = URI_MATCHER.match(uri);
+        AlarmState state = AlarmPreferencesUtil.getInstance(getContext()).getState();
+        List<Object[]> rows = new ArrayList<>();
+        String[] columns;
+        switch (match) {
+            case MATCH_ALARMS:
+            case MATCH_ALARM:
+                columns = checkProjection(projection, AlarmContract.Alarms.DEFAULT_PROJECTION);
+                List<Alarm> alarms = state.getAlarms();
+                if (match == MATCH_ALARM) {
+                    Alarm alarm = state.getAlarm((int) ContentUris.parseId(uri));
+                    alarms = alarm != null ? Arrays.asList(alarm) : new ArrayList<>();
+                }
+                for (Alarm alarm : alarms) {
+                    rows.add(new Object[]{alarm.getRequestCode(), alarm.getRequestCode(), alarm.getEpochTriggerTimeMillis()});
+                }
+                break;
+            case MATCH_FUTURE_ALARM_TIMES:
+                columns = checkProjection(projection, AlarmContract.FutureAlarmTimes.DEFAULT_PROJECTION);
+                List<Integer> futureAlarmTimes = state.getFutureAlarmTimes();
+                for (int i = 0; i < futureAlarmTimes.size(); i++) {
+                    rows.add(new Object[]{i, futureAlarmTimes.get(i)});
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown uri " + uri);
+        }
+        String[] allColumns = match == MATCH_FUTURE_ALARM_TIMES ? AlarmContract.FutureAlarmTimes.DEFAULT_PROJECTION : AlarmContract.Alarms.DEFAULT_PROJECTION;
+
+        int offset = queryArgs != null ? Math.max(0, queryArgs.getInt(ContentResolver.QUERY_ARG_OFFSET, 0)) : 0;
+        int limit = queryArgs != null ? queryArgs.getInt(ContentResolver.QUERY_ARG_LIMIT, -1) : -1;
+        int end = limit < 0 ? rows.size() : (int) Math.min(rows.size(), (long) offset + limit);
+        MatrixCursor cursor = new MatrixCursor(columns, Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            cursor.addRow(project(rows.get(i), allColumns, columns));
+        }
+
+        Bundle extras = new Bundle();
+        extras.putInt(ContentResolver.EXTRA_TOTAL_COUNT, rows.size());
+        if (queryArgs != null && (queryArgs.containsKey(ContentResolver.QUERY_ARG_LIMIT) || queryArgs.containsKey(ContentResolver.QUERY_ARG_OFFSET))) {
+            extras.putStringArray(ContentResolver.EXTRA_HONORED_ARGS,
+                    new String[]{ContentResolver.QUERY_ARG_LIMIT, ContentResolver.QUERY_ARG_OFFSET});
+        }
+        cursor.setExtras(extras);
+        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        return cursor;
+    }
+
+    /**
+     * Checks that only known columns are requested
+     * @param projection requested columns, null for all of them
+     * @param allColumns columns of the table
+     * @return the columns of the cursor
+     */
+    private static String[] checkProjection(String[] projection, String[] allColumns) {
+        if (projection == null) {
+            return allColumns;
+        }
+        List<String> known = Arrays.asList(allColumns);
+        for (String column : projection) {
+            if (!known.contains(column)) {
+                throw new IllegalArgumentException("Unknown column " + column);
+            }
+        }
+        return projection;
+    }
+
+    private static Object[] project(Object[] row, String[] allColumns, String[] columns) {
+        if (columns == allColumns) {
+            return row;
+        }
+        Object[] projectedRow = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            projectedRow[i] = row[Arrays.asList(allColumns).indexOf(columns[i])];
+        }
+        return projectedRow;
+    }
+
+    /**
+     * Arms an alarm at an epoch time, or adds a duration after which an alarm is set once the screen turns off.
+     * Within applyBatch the row is only collected, and applied with the rest of the batch
+     * @return uri of the alarm, null if its trigger time already passed. The table uri for future alarm times and for rows of a batch
+     */
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        Changes batch = batchChanges.get();
+        if (batch != null) {
+            batch.insert(uri, values);
+            // Alarms with passed trigger times are dropped, so rows of a batch are reported by their table
+            return URI_MATCHER.match(uri) == MATCH_FUTURE_ALARM_TIMES ? AlarmContract.FutureAlarmTimes.CONTENT_URI : AlarmContract.Alarms.CONTENT_URI;
+        }
+        Changes changes = newChanges();
+        changes.insert(uri, values);
+        List<Alarm> alarms = apply(changes);
+        if (URI_MATCHER.match(uri) == MATCH_FUTURE_ALARM_TIMES) {
+            return AlarmContract.FutureAlarmTimes.CONTENT_URI;
+        }
+        return alarms.isEmpty() ? null : ContentUris.withAppendedId(AlarmContract.Alarms.CONTENT_URI, alarms.get(0).getRequestCode());
+    }
+
+    /**
+     * Arms all rows in a single write to the shared preferences
+     * @return number of rows inserted
+     */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        Changes changes = newChanges();
+        for (ContentValues rowValues : values) {
+            changes.insert(uri, rowValues);
+        }
+        apply(changes);
+        return values.length;
+    }
+
+    /**
+     * Applies a batch of deletes followed by inserts in a single write to the shared preferences.
+     * The operations are run against insert and delete, which only collect them, so an unsupported or invalid operation
+     * rejects the whole batch before anything is applied
+     * @throws OperationApplicationException if an operation is not supported or invalid
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+        Changes changes = newChanges();
+        ContentProviderResult[] results;
+        batchChanges.set(changes);
+        try {
+            results = super.applyBatch(operations);
+        } catch (IllegalArgumentException e) {
+            throw new OperationApplicationException("Nothing was applied: " + e.getMessage());
+        } finally {
+            batchChanges.remove();
+        }
+        apply(changes);
+        return results;
+    }
+
+    /**
+     * Cancels all alarms, a single alarm, or removes all future alarm times.
+     * Within applyBatch the removal is only collected, and applied with the rest of the batch
+     * @return number of rows removed
+     */
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        checkNoSelection(selection, selectionArgs, null);
+        Changes batch = batchChanges.get();
+        if (batch != null) {
+            return batch.delete(uri);
+        }
+        Changes changes = newChanges();
+        int count = changes.delete(uri);
+        if (count > 0) {
+            apply(changes);
+        }
+        return count;
+    }
+
+    /**
+     * Alarms cannot be updated, callers delete and insert them instead. Rejects the whole batch when used within applyBatch
+     */
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new IllegalArgumentException("Alarms cannot be updated, delete and insert them instead: " + uri);
+    }
+
+    /**
+     * Rejects selections and sort orders, which are not supported, instead of silently ignoring them
+     */
+    private static void checkNoSelection(String selection, String[] selectionArgs, String sortOrder) {
+        if (selection != null || selectionArgs != null) {
+            throw new IllegalArgumentException("Selections are not supported, use the uri of a single alarm instead");
+        }
+        if (sortOrder != null) {
+            throw new IllegalArgumentException("Sort orders are not supported, rows are returned in the order they were added");
+        }
+    }
+
+    private Changes newChanges() {
+        AlarmPreferencesUtil alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(getContext());
+        return new Changes(alarmPreferencesUtil::getState);
+    }
+
+    /**
+     * Applies collected changes in a single write, then starts or stops the foreground service or updates its notification
+     * @param changes changes to apply
+     * @return The alarms that were set
+     */
+    private List<Alarm> apply(Changes changes) {
+        if (changes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Context context = getContext();
+        AlarmPreferencesUtil alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+        // The service runs whenever an alarm is or will be set
+        boolean serviceRunning = alarmPreferencesUtil.getStatus().getKind() != AlarmStatus.Kind.NO_ALARM;
+        List<Alarm> alarms = AlarmHandler.getInstance(context).importPlan(changes.buildRemoval(), changes.buildPlan());
+        if (alarmPreferencesUtil.getStatus().getKind() == AlarmStatus.Kind.NO_ALARM) {
+            if (serviceRunning) {
+                context.stopService(new Intent(context, ForegroundAlarmSetterService.class));
+            }
+            return alarms;
+        }
+        if (serviceRunning) {
+            ForegroundNotificationTextUtil.getInstance(context).updateNotificationContents(context);
+            return alarms;
+        }
+        // If the service cannot be started, only this call's additions are removed again. Alarms and future alarm times added by
+        // other calls in the meantime are kept
+        startService(context, AlarmRemoval.undoing(alarms, changes.buildPlan().getFutureAlarmTimes()));
+        return alarms;
+    }
+
+    /**
+     * Starts the foreground service for alarms that were set while it was not running.
+     * The caller is another app, so this app may be in the background and the service has to be started as a foreground service.
+     * If the system still refuses, the alarms are removed again and the call fails, as nothing would set them once the screen turns off
+     * @param context context of the application
+     * @param undo removal of the alarms and future alarm times that were added
+     */
+    private void startService(Context context, AlarmRemoval undo) {
+        try {
+            context.startForegroundService(new Intent(context, ForegroundAlarmSetterService.class));
+        } catch (IllegalStateException e) {
+            Log.d("AlarmProvider", "Could not start the foreground service: " + e);
+            AlarmHandler.getInstance(context).importPlan(undo, new AlarmPlan(Collections.<Integer>emptyList(), Collections.<Long>emptyList()));
+            throw new IllegalStateException("The foreground service could not be started, the alarms were not set", e);
+        }
+    }
+
+    /**
+     * Collects deleted rows into a single AlarmRemoval and inserted rows into a single AlarmPlan
+     */
+    private static class Changes {
+        private final Supplier<AlarmState> currentState;
+        private AlarmState remainingState; // State left by the deletes collected so far, read on the first delete
+        private boolean allAlarmsRemoved = false;
+        private final Set<Integer> removedRequestCodes = new HashSet<>();
+        private boolean futureAlarmTimesRemoved = false;
+        private final List<Integer> futureAlarmTimes = new ArrayList<>();
+        private final List<Long> epochTriggerTimesMillis = new ArrayList<>();
+
+        Changes(Supplier<AlarmState> currentState) {
+            this.currentState = currentState;
+        }
+
+        void insert(Uri uri, ContentValues values) {
+            switch (URI_MATCHER.match(uri)) {
+                case MATCH_ALARMS:
+                    Long triggerTime = values != null ? values.getAsLong(AlarmContract.Alarms.COLUMN_EPOCH_TRIGGER_TIME_MILLIS) : null;
+                    if (triggerTime == null || triggerTime <= 0) {
+                        throw new IllegalArgumentException("A positive " + AlarmContract.Alarms.COLUMN_EPOCH_TRIGGER_TIME_MILLIS + " is required");
+                    }
+                    epochTriggerTimesMillis.add(triggerTime);
+                    break;
+                case MATCH_FUTURE_ALARM_TIMES:
+                    Integer duration = values != null ? values.getAsInteger(AlarmContract.FutureAlarmTimes.COLUMN_DURATION_MILLIS) : null;
+                    if (duration == null || duration <= 0) {
+                        throw new IllegalArgumentException("A positive " + AlarmContract.FutureAlarmTimes.COLUMN_DURATION_MILLIS + " is required");
+                    }
+                    futureAlarmTimes.add(duration);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Cannot insert into " + uri);
+            }
+        }
+
+        /**
+         * Collects a delete
+         * @param uri uri of the alarms, of a single alarm or of the future alarm times
+         * @return number of rows the delete removes
+         */
+        int delete(Uri uri) {
+            // The removal is applied before the plan, so a delete after an insert could not see the inserted rows
+            if (!futureAlarmTimes.isEmpty() || !epochTriggerTimesMillis.isEmpty()) {
+                throw new IllegalArgumentException("Deletes have to come before inserts");
+            }
+            if (remainingState == null) {
+                remainingState = currentState.get();
+            }
+            int count;
+            switch (URI_MATCHER.match(uri)) {
+                case MATCH_ALARMS:
+                    count = remainingState.getAlarms().size();
+                    allAlarmsRemoved = true;
+                    remainingState = remainingState.withoutAlarms();
+                    break;
+                case MATCH_ALARM:
+                    int requestCode = (int) ContentUris.parseId(uri);
+                    if (remainingState.getAlarm(requestCode) == null) {
+                        return 0;
+                    }
+                    count = 1;
+                    removedRequestCodes.add(requestCode);
+                    remainingState = remainingState.withoutAlarm(requestCode);
+                    break;
+                case MATCH_FUTURE_ALARM_TIMES:
+                    count = remainingState.getFutureAlarmTimes().size();
+                    futureAlarmTimesRemoved = true;
+                    remainingState = remainingState.withoutFutureAlarmTimes();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown uri " + uri);
+            }
+            return count;
+        }
+
+        boolean isEmpty() {
+            return !allAlarmsRemoved && removedRequestCodes.isEmpty() && !futureAlarmTimesRemoved
+                    && futureAlarmTimes.isEmpty() && epochTriggerTimesMillis.isEmpty();
+        }
+
+        AlarmRemoval buildRemoval() {
+            return new AlarmRemoval(allAlarmsRemoved, removedRequestCodes, futureAlarmTimesRemoved);
+        }
+
+        AlarmPlan buildPlan() {
+            return new AlarmPlan(futureAlarmTimes, epochTriggerTimesMillis);
+        }
+    }
+}
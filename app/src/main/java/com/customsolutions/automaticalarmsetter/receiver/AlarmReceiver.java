@@ -3,19 +3,79 @@ package com.customsolutions.automaticalarmsetter.receiver;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.customsolutions.automaticalarmsetter.RingActivity;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmSoundHandler;
+import com.customsolutions.automaticalarmsetter.handler.RingLatencyTracer;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
 
+/**
+ * Receiver for alarms scheduled with the AlarmManager
+ */
 public class AlarmReceiver extends BroadcastReceiver {
 
+    public static final String ACTION_PREWARM = "com.customsolutions.automaticalarmsetter.action.PREWARM";
+    public static final String EXTRA_REQUEST_CODE = "requestCode";
+    public static final String EXTRA_TRIGGER_TIME = "triggerTimeMillis";
+    public static final String EXTRA_RECEIVED_AT_ELAPSED_MILLIS = "receivedAtElapsedMillis";
+
+    public static Intent getIntent(Context context) {
+        return new Intent(context, AlarmReceiver.class);
+    }
+
+    /**
+     * Get the intent that is delivered to the AlarmReceiver once the alarm goes off
+     * @param context context of the application
+     * @param alarm alarm the intent is for
+     * @return Intent directed at the AlarmReceiver carrying the alarm's request code and trigger time
+     */
+    public static Intent getIntent(Context context, Alarm alarm) {
+        return getIntent(context)
+                .putExtra(EXTRA_REQUEST_CODE, alarm.getRequestCode())
+                .putExtra(EXTRA_TRIGGER_TIME, alarm.getEpochTriggerTimeMillis());
+    }
+
+    /**
+     * Get the request code of the alarm an intent was sent for
+     * @param intent intent created by getIntent(Context, Alarm) or an intent that copied its extras
+     * @return request code of the alarm, Alarm.NO_REQUEST_CODE if the intent does not carry one
+     */
+    public static int getRequestCode(Intent intent) {
+        return intent.getIntExtra(EXTRA_REQUEST_CODE, Alarm.NO_REQUEST_CODE);
+    }
+
+    /**
+     * Prepares the alarm's sound ahead of time or starts ringing, depending on the intent's action
+     * @param context The Context in which the receiver is running.
+     * @param intent The Intent being received.
+     */
     @Override
     public void onReceive(Context context, Intent intent) {
-        Log.d("AlarmReceiver", "Alarm went off!");
+        long receivedAt = SystemClock.elapsedRealtime();
+        long receivedTimeMillis = System.currentTimeMillis();
+        AlarmSoundHandler alarmSoundHandler = AlarmSoundHandler.getInstance(context);
+
+        if (ACTION_PREWARM.equals(intent.getAction())) {
+            Log.d("AlarmReceiver", "Preparing the alarm sound!");
+            alarmSoundHandler.prepare();
+            return;
+        }
+        Log.d("AlarmReceiver", String.format("Alarm %d went off!", getRequestCode(intent)));
+        long scheduledTimeMillis = intent.getLongExtra(EXTRA_TRIGGER_TIME, receivedTimeMillis);
+        RingLatencyTracer.getInstance(context).onAlarmReceived(scheduledTimeMillis, receivedTimeMillis);
+        AlarmHandler.getInstance(context).onAlarmFired(getRequestCode(intent), scheduledTimeMillis, receivedTimeMillis);
+
+        // Start ringing right away, the activity attaches to the already playing alarm
+        alarmSoundHandler.start(receivedAt);
 
         Intent alarmIntent = new Intent(context, RingActivity.class);
         alarmIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        alarmIntent.putExtra(EXTRA_REQUEST_CODE, getRequestCode(intent));
+        alarmIntent.putExtra(EXTRA_TRIGGER_TIME, scheduledTimeMillis);
+        alarmIntent.putExtra(EXTRA_RECEIVED_AT_ELAPSED_MILLIS, receivedAt);
         context.startActivity(alarmIntent);
-
     }
 }
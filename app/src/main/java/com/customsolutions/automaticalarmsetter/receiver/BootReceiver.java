@@ -0,0 +1,77 @@
+package com.customsolutions.automaticalarmsetter.receiver;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHistoryRecorder;
+import com.customsolutions.automaticalarmsetter.service.ForegroundAlarmSetterService;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+
+/**
+ * Receiver that restores the alarms once the device has booted or the app has been updated.
+ * Both clear the registrations with the AlarmManager, while the alarms stay in the shared preferences
+ */
+public class BootReceiver extends BroadcastReceiver {
+
+    // goAsync() gives the receiver about 10 seconds before the system considers it stuck
+    static final long RESTORE_BUDGET_MILLIS = 5000;
+
+    /**
+     * Restores the alarms on a background thread, keeping the broadcast alive until they are restored
+     * @param context The Context in which the receiver is running.
+     * @param intent The Intent being received.
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action) && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            return;
+        }
+        Log.d("BootReceiver", "Restoring alarms after " + action);
+        PendingResult pendingResult = goAsync();
+        Context applicationContext = context.getApplicationContext();
+        new Thread(() -> {
+            try {
+                restoreAlarms(applicationContext);
+            } finally {
+                // The process may be killed once the broadcast is finished, so the alarms and their history have to be written by then
+                AlarmPreferencesUtil.getInstance(applicationContext).flush();
+                AlarmHistoryRecorder.getInstance(applicationContext).flush();
+                pendingResult.finish();
+            }
+        }, "BootReceiver").start();
+    }
+
+    /**
+     * Re-arms the stored alarms in one pass and restarts the foreground service if alarms will be set once the screen turns off.
+     * Both broadcasts allow starting a foreground service from the background. If the system still refuses, the future alarm times
+     * are removed, as nothing would set them and the widget and tile would keep showing them. The armed alarms still go off.
+     * The re-arming pass itself is timed by the AlarmHandler, which also tells a boot from an app update by the stored boot count
+     * @param context context of the application
+     * @return how long restoring took in milliseconds
+     */
+    static long restoreAlarms(Context context) {
+        long startNanos = System.nanoTime();
+        AlarmHandler.getInstance(context).rearmAlarms();
+        AlarmPreferencesUtil alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+        if (alarmPreferencesUtil.futureAlarmWillBeSet()) {
+            try {
+                context.startForegroundService(new Intent(context, ForegroundAlarmSetterService.class));
+            } catch (IllegalStateException e) {
+                Log.d("BootReceiver", "Could not start the foreground service, removing the future alarm times: " + e);
+                alarmPreferencesUtil.removeFutureAlarmTimes();
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+        if (elapsedMillis > RESTORE_BUDGET_MILLIS) {
+            Log.d("BootReceiver", String.format("Restoring alarms took %d ms, over the budget of %d ms", elapsedMillis, RESTORE_BUDGET_MILLIS));
+        } else {
+            Log.d("BootReceiver", String.format("Alarms restored in %d ms", elapsedMillis));
+        }
+        return elapsedMillis;
+    }
+}
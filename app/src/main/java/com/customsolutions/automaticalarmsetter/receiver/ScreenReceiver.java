@@ -31,8 +31,8 @@ public class ScreenReceiver extends BroadcastReceiver {
             switch(action) {
                 case Intent.ACTION_SCREEN_OFF:
                     Log.d("ScreenReceiver", "Screen turned off!");
-                    // Schedule alarms
-                    alarmHandler.scheduleAlarmsByFutureAlarmTimes(context);
+                    // Drop alarms that went off without being stopped, then schedule alarms
+                    alarmHandler.onScreenOff();
                     // Update foreground notification text
                     foregroundNotificationTextUtil.updateNotificationContents(context);
                     break;
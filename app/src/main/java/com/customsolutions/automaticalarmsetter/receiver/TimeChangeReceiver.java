@@ -0,0 +1,65 @@
+package com.customsolutions.automaticalarmsetter.receiver;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.service.quicksettings.TileService;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHistoryRecorder;
+import com.customsolutions.automaticalarmsetter.service.AlarmTileService;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.ForegroundNotificationTextUtil;
+import com.customsolutions.automaticalarmsetter.widget.AlarmWidgetUpdater;
+
+/**
+ * Receiver keeping the ring times right when the user or the network changes the clock or the timezone.
+ * Alarms set to ring after a duration follow the elapsed realtime clock, so a clock change moves their wall clock time.
+ * A timezone change leaves every ring time as it is and only changes how it is displayed
+ */
+public class TimeChangeReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_TIME_CHANGED.equals(action) && !Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            return;
+        }
+        Log.d("TimeChangeReceiver", "Updating alarms after " + action);
+        PendingResult pendingResult = goAsync();
+        Context applicationContext = context.getApplicationContext();
+        new Thread(() -> {
+            try {
+                onTimeChanged(applicationContext, Intent.ACTION_TIME_CHANGED.equals(action));
+            } finally {
+                // The process may be killed once the broadcast is finished, so the alarms and their history have to be written by then
+                AlarmPreferencesUtil.getInstance(applicationContext).flush();
+                AlarmHistoryRecorder.getInstance(applicationContext).flush();
+                pendingResult.finish();
+            }
+        }, "TimeChangeReceiver").start();
+    }
+
+    /**
+     * Moves the affected alarms and refreshes the displayed ring times
+     * @param context context of the application
+     * @param wallClockChanged whether the clock was changed, rather than only the timezone
+     */
+    private void onTimeChanged(Context context, boolean wallClockChanged) {
+        AlarmPreferencesUtil alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+        if (alarmPreferencesUtil.getStatus().getKind() == AlarmStatus.Kind.NO_ALARM) {
+            return;
+        }
+        if (wallClockChanged && alarmPreferencesUtil.alarmSet()) {
+            // Moved alarms are written to the shared preferences, which also updates the widget and the tile
+            AlarmHandler.getInstance(context).onWallClockChanged();
+        }
+        // The displayed times are formatted in the current timezone
+        ForegroundNotificationTextUtil.getInstance(context).updateNotificationContents(context);
+        AlarmWidgetUpdater.getInstance(context).onStatusChanged(alarmPreferencesUtil.getStatus());
+        TileService.requestListeningState(context, new ComponentName(context, AlarmTileService.class));
+    }
+}
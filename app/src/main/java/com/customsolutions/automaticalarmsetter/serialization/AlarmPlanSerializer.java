@@ -0,0 +1,83 @@
+package com.customsolutions.automaticalarmsetter.serialization;
+
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes an AlarmPlan as {"futureAlarmTimes":[60000],"epochTriggerTimesMillis":[1700000000000]}
+ * The plan is read and written as a stream, so files with thousands of entries are never held in memory as text
+ */
+public class AlarmPlanSerializer implements JsonSerializer<AlarmPlan> {
+
+    public static final AlarmPlanSerializer INSTANCE = new AlarmPlanSerializer();
+    private static final String FIELD_FUTURE_ALARM_TIMES = "futureAlarmTimes";
+    private static final String FIELD_EPOCH_TRIGGER_TIMES_MILLIS = "epochTriggerTimesMillis";
+
+    private AlarmPlanSerializer() {
+
+    }
+
+    @Override
+    public void write(JsonWriter writer, AlarmPlan value) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_FUTURE_ALARM_TIMES).beginArray();
+        for (Integer time : value.getFutureAlarmTimes()) {
+            writer.value(time);
+        }
+        writer.endArray();
+        writer.name(FIELD_EPOCH_TRIGGER_TIMES_MILLIS).beginArray();
+        for (Long time : value.getEpochTriggerTimesMillis()) {
+            writer.value(time);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    /**
+     * Reads a plan. Either list may be missing
+     * @throws JsonParseException if a duration or trigger time is not positive
+     */
+    @Override
+    public AlarmPlan read(JsonReader reader) throws IOException {
+        List<Integer> futureAlarmTimes = new ArrayList<>();
+        List<Long> epochTriggerTimesMillis = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case FIELD_FUTURE_ALARM_TIMES:
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        futureAlarmTimes.add((int) readPositive(reader, Integer.MAX_VALUE));
+                    }
+                    reader.endArray();
+                    break;
+                case FIELD_EPOCH_TRIGGER_TIMES_MILLIS:
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        epochTriggerTimesMillis.add(readPositive(reader, Long.MAX_VALUE));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new AlarmPlan(futureAlarmTimes, epochTriggerTimesMillis);
+    }
+
+    private static long readPositive(JsonReader reader, long max) throws IOException {
+        long value = reader.nextLong();
+        if (value <= 0 || value > max) {
+            throw new JsonParseException("Invalid time " + value + " at " + reader.getPath());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,60 @@
+package com.customsolutions.automaticalarmsetter.serialization;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes an Alarm as {"requestCode":1,"epochTriggerTimeMillis":2,"elapsedTriggerTimeMillis":3}
+ * The elapsed trigger time is left out for alarms set at a wall clock time
+ */
+public class AlarmSerializer implements JsonSerializer<Alarm> {
+
+    public static final AlarmSerializer INSTANCE = new AlarmSerializer();
+    private static final String FIELD_REQUEST_CODE = "requestCode";
+    private static final String FIELD_EPOCH_TRIGGER_TIME_MILLIS = "epochTriggerTimeMillis";
+    private static final String FIELD_ELAPSED_TRIGGER_TIME_MILLIS = "elapsedTriggerTimeMillis";
+
+    private AlarmSerializer() {
+
+    }
+
+    @Override
+    public void write(JsonWriter writer, Alarm value) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_REQUEST_CODE).value(value.getRequestCode());
+        writer.name(FIELD_EPOCH_TRIGGER_TIME_MILLIS).value(value.getEpochTriggerTimeMillis());
+        if (value.hasElapsedTriggerTime()) {
+            writer.name(FIELD_ELAPSED_TRIGGER_TIME_MILLIS).value(value.getElapsedTriggerTimeMillis());
+        }
+        writer.endObject();
+    }
+
+    @Override
+    public Alarm read(JsonReader reader) throws IOException {
+        int requestCode = 0;
+        long epochTriggerTimeMillis = 0;
+        long elapsedTriggerTimeMillis = Alarm.NO_ELAPSED_TRIGGER_TIME;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case FIELD_REQUEST_CODE:
+                    requestCode = reader.nextInt();
+                    break;
+                case FIELD_EPOCH_TRIGGER_TIME_MILLIS:
+                    epochTriggerTimeMillis = reader.nextLong();
+                    break;
+                case FIELD_ELAPSED_TRIGGER_TIME_MILLIS:
+                    elapsedTriggerTimeMillis = reader.nextLong();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new Alarm(requestCode, epochTriggerTimeMillis, elapsedTriggerTimeMillis);
+    }
+}
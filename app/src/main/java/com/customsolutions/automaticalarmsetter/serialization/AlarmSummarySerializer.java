@@ -0,0 +1,68 @@
+package com.customsolutions.automaticalarmsetter.serialization;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmSummary;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes an AlarmSummary as {"alarmCount":1,"nextAlarm":{...},"futureAlarmTimeCount":0,"firstFutureAlarmTime":0}
+ * The next alarm is left out if no alarm is set
+ */
+public class AlarmSummarySerializer implements JsonSerializer<AlarmSummary> {
+
+    public static final AlarmSummarySerializer INSTANCE = new AlarmSummarySerializer();
+    private static final String FIELD_ALARM_COUNT = "alarmCount";
+    private static final String FIELD_NEXT_ALARM = "nextAlarm";
+    private static final String FIELD_FUTURE_ALARM_TIME_COUNT = "futureAlarmTimeCount";
+    private static final String FIELD_FIRST_FUTURE_ALARM_TIME = "firstFutureAlarmTime";
+
+    private AlarmSummarySerializer() {
+
+    }
+
+    @Override
+    public void write(JsonWriter writer, AlarmSummary value) throws IOException {
+        writer.beginObject();
+        writer.name(FIELD_ALARM_COUNT).value(value.getAlarmCount());
+        if (value.getNextAlarm() != null) {
+            writer.name(FIELD_NEXT_ALARM);
+            AlarmSerializer.INSTANCE.write(writer, value.getNextAlarm());
+        }
+        writer.name(FIELD_FUTURE_ALARM_TIME_COUNT).value(value.getFutureAlarmTimeCount());
+        writer.name(FIELD_FIRST_FUTURE_ALARM_TIME).value(value.getFirstFutureAlarmTime());
+        writer.endObject();
+    }
+
+    @Override
+    public AlarmSummary read(JsonReader reader) throws IOException {
+        int alarmCount = 0;
+        Alarm nextAlarm = null;
+        int futureAlarmTimeCount = 0;
+        int firstFutureAlarmTime = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case FIELD_ALARM_COUNT:
+                    alarmCount = reader.nextInt();
+                    break;
+                case FIELD_NEXT_ALARM:
+                    nextAlarm = AlarmSerializer.INSTANCE.read(reader);
+                    break;
+                case FIELD_FUTURE_ALARM_TIME_COUNT:
+                    futureAlarmTimeCount = reader.nextInt();
+                    break;
+                case FIELD_FIRST_FUTURE_ALARM_TIME:
+                    firstFutureAlarmTime = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new AlarmSummary(alarmCount, nextAlarm, futureAlarmTimeCount, firstFutureAlarmTime);
+    }
+}
@@ -0,0 +1,28 @@
+package com.customsolutions.automaticalarmsetter.serialization;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes an Integer as a JSON number
+ */
+public class IntegerSerializer implements JsonSerializer<Integer> {
+
+    public static final IntegerSerializer INSTANCE = new IntegerSerializer();
+
+    private IntegerSerializer() {
+
+    }
+
+    @Override
+    public void write(JsonWriter writer, Integer value) throws IOException {
+        writer.value(value);
+    }
+
+    @Override
+    public Integer read(JsonReader reader) throws IOException {
+        return reader.nextInt();
+    }
+}
@@ -0,0 +1,61 @@
+package com.customsolutions.automaticalarmsetter.serialization;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ * Hand-written, reflection-free conversion of an object to and from JSON.
+ * Implementations must produce the same JSON Gson's reflection based serialization did, so that already stored data can still be read
+ * @param <T> type of the object
+ */
+public interface JsonSerializer<T> {
+
+    /**
+     * Writes an object as the next JSON value
+     * @param writer writer to write the object to
+     * @param value object to write
+     */
+    void write(JsonWriter writer, T value) throws IOException;
+
+    /**
+     * Reads an object from the next JSON value
+     * @param reader reader positioned at the object
+     * @return the object
+     */
+    T read(JsonReader reader) throws IOException;
+
+    /**
+     * Serializes an object to a Json string
+     * @param value object to serialize
+     * @return Json string
+     */
+    default String toJson(T value) {
+        StringWriter stringWriter = new StringWriter();
+        try {
+            write(new JsonWriter(stringWriter), value);
+        } catch (IOException e) {
+            // A StringWriter never throws
+            throw new IllegalStateException(e);
+        }
+        return stringWriter.toString();
+    }
+
+    /**
+     * Deserializes an object from a Json string
+     * @param json Json string to deserialize
+     * @return the object
+     * @throws JsonParseException if the string is not a valid Json representation of the object
+     */
+    default T fromJson(String json) {
+        try {
+            return read(new JsonReader(new StringReader(json)));
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException("Could not parse " + json, e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.customsolutions.automaticalarmsetter.serialization;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes a List as a JSON array, using another serializer for its elements
+ * @param <T> type of the list's elements
+ */
+public class ListSerializer<T> implements JsonSerializer<List<T>> {
+
+    private final JsonSerializer<T> elementSerializer;
+
+    public ListSerializer(JsonSerializer<T> elementSerializer) {
+        this.elementSerializer = elementSerializer;
+    }
+
+    @Override
+    public void write(JsonWriter writer, List<T> value) throws IOException {
+        writer.beginArray();
+        for (T element : value) {
+            elementSerializer.write(writer, element);
+        }
+        writer.endArray();
+    }
+
+    @Override
+    public List<T> read(JsonReader reader) throws IOException {
+        List<T> list = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            list.add(elementSerializer.read(reader));
+        }
+        reader.endArray();
+        return list;
+    }
+}
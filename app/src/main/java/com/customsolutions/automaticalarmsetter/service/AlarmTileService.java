@@ -0,0 +1,80 @@
+package com.customsolutions.automaticalarmsetter.service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.R;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.handler.AlarmToggleHandler;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Quick Settings tile arming the last used duration, or cancelling the alarms that are or will be set, with one tap.
+ * The tile is active: it is only updated when the alarm state changes, and its state is taken from the stored summary of the alarms
+ */
+public class AlarmTileService extends TileService {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void onStartListening() {
+        executor.execute(() -> {
+            // Only the summary is read, never the full alarm lists
+            AlarmStatus status = AlarmPreferencesUtil.getInstance(this).getStatus();
+            mainHandler.post(() -> updateTile(status));
+        });
+    }
+
+    @Override
+    public void onClick() {
+        long tappedAtElapsedNanos = SystemClock.elapsedRealtimeNanos();
+        Log.d("AlarmTileService", "Tile tapped");
+        executor.execute(() -> {
+            AlarmToggleHandler.getInstance(this).toggle(tappedAtElapsedNanos);
+            AlarmStatus status = AlarmPreferencesUtil.getInstance(this).getStatus();
+            mainHandler.post(() -> updateTile(status));
+        });
+    }
+
+    /**
+     * Shows the status on the tile. Must be called on the main thread
+     * @param status status of the alarms
+     */
+    private void updateTile(AlarmStatus status) {
+        Tile tile = getQsTile();
+        if (tile == null) {
+            // No longer listening
+            return;
+        }
+        switch (status.getKind()) {
+            case ALARM_SET:
+                tile.setState(Tile.STATE_ACTIVE);
+                tile.setSubtitle(TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(status.getNextAlarm().getEpochTriggerTimeMillis()));
+                break;
+            case ALARM_WILL_BE_SET:
+                tile.setState(Tile.STATE_ACTIVE);
+                tile.setSubtitle(getString(R.string.tile_alarm_will_be_set_subtitle));
+                break;
+            default:
+                tile.setState(Tile.STATE_INACTIVE);
+                tile.setSubtitle(null);
+                break;
+        }
+        tile.updateTile();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        executor.shutdown();
+    }
+}
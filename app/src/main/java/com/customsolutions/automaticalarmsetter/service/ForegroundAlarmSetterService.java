@@ -13,11 +13,18 @@ import android.util.Log;
 
 import androidx.annotation.Nullable;
 
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
 import com.customsolutions.automaticalarmsetter.MainActivity;
 import com.customsolutions.automaticalarmsetter.R;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.handler.AlarmToggleHandler;
+import com.customsolutions.automaticalarmsetter.handler.RingLatencyTracer;
 import com.customsolutions.automaticalarmsetter.receiver.ScreenReceiver;
 import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
-import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+import com.customsolutions.automaticalarmsetter.util.ForegroundNotificationTextUtil;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 
 /**
  * Foreground Service that sets an alarm once the screen turns off
@@ -42,23 +49,28 @@ public class ForegroundAlarmSetterService extends Service {
         // Create notification channel
         createNotificationChannel();
 
-        // Get the notifications text
-        String notificationTitleText = getString(R.string.alarm_will_be_set_notification_title);
-        // Get the content text. Content shows how long after turning off the screen the alarm will ring
-        String alarmWillBeSetNotificationContent = getString(R.string.alarm_will_be_set_format_text);
-        // Get the time when the alarm will go off from shared preferences
-        AlarmPreferencesUtil alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(this);
-        String timeString = TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(alarmPreferencesUtil.getFutureAlarmTimes().get(0));
-        String notificationContentString = String.format(alarmWillBeSetNotificationContent, timeString);
+        // Show when the alarm rings, or how long after turning off the screen it will ring
+        ForegroundNotificationTextUtil foregroundNotificationTextUtil = ForegroundNotificationTextUtil.getInstance(this);
+        AlarmStatus status = AlarmPreferencesUtil.getInstance(this).getStatus();
+        if (status.getKind() == AlarmStatus.Kind.NO_ALARM) {
+            Log.d("AlarmSetterService", "No alarms set or to be set!");
+            stopSelf();
+            return;
+        }
+        String notificationTitleText = foregroundNotificationTextUtil.getTitleText(this, status);
+        String notificationContentString = foregroundNotificationTextUtil.getContentText(this, status);
 
         // Start the foreground service
         startForeground(NOTIFICATION_ID, buildNotification(this, notificationTitleText, notificationContentString));
+        foregroundNotificationTextUtil.recordNotificationPost();
         Log.d("AlarmSetterService", "Foreground service started!");
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d("AlarmSetterService", "Alarm Setter Service onStartCommand called!");
+        // Called after onCreate, so the service is in the foreground by now
+        AlarmToggleHandler.getInstance(this).recordServiceStarted(intent);
         return START_STICKY;
     }
 
@@ -124,6 +136,16 @@ public class ForegroundAlarmSetterService extends Service {
         notificationManager.notify(NOTIFICATION_ID, notification);
     }
 
+    /**
+     * Prints the service's diagnostics and a snapshot of the metrics. Run with 'adb shell dumpsys activity service ForegroundAlarmSetterService'
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("Ring latency: " + RingLatencyTracer.getInstance(this).getSummary());
+        writer.println("Metrics:");
+        AlarmSetterApplication.from(this).getMetricsRegistry().dump(writer);
+    }
+
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
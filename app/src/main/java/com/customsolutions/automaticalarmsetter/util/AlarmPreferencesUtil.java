@@ -2,34 +2,210 @@ package com.customsolutions.automaticalarmsetter.util;
 
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.Editor;
 import android.util.Log;
 
-import com.customsolutions.automaticalarmsetter.model.Alarm;
-import com.google.gson.reflect.TypeToken;
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmSummary;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmStatePersister;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmStateStore;
+import com.customsolutions.automaticalarmsetter.serialization.AlarmSerializer;
+import com.customsolutions.automaticalarmsetter.serialization.AlarmSummarySerializer;
+import com.customsolutions.automaticalarmsetter.serialization.IntegerSerializer;
+import com.customsolutions.automaticalarmsetter.serialization.JsonSerializer;
+import com.customsolutions.automaticalarmsetter.serialization.ListSerializer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Singleton utility class for handling alarms with shared storage
- * Provides methods for setting/getting/deleting alarms and future alarm times from the shared storage
+ * Provides methods for reading alarms and setting/getting/deleting future alarm times from the shared storage.
+ * Alarms are set and removed through the AlarmScheduler, which updates the same store.
+ * The alarms are kept in memory in an AlarmStateStore, which is read from the shared storage once and written back by a single writer thread.
+ * A summary of the lists is written in the same commit, so existence and next-alarm queries don't need to read the lists.
+ * State listeners are told about every snapshot once it has been written
  */
-public class AlarmPreferencesUtil extends SharedPreferencesUtil {
-    private static AlarmPreferencesUtil instance;
+public class AlarmPreferencesUtil extends SharedPreferencesUtil implements AlarmStatePersister {
     private static final String PREFERENCES_NAME = "AlarmPreferences";
     private static final String KEY_ALARMS = "alarms"; // Alarms that are actually set
     private static final String KEY_ALARMS_TO_SET_IN_FUTURE = "alarmsToSetInFuture"; // Alarms that should be set after a given amount of time
+    private static final String KEY_SUMMARY = "alarmSummary"; // Counts, next alarm and first future alarm time of the lists above
+    private static final String KEY_BOOT_COUNT = "alarmsBootCount"; // Boot in which the elapsed trigger times of the alarms were measured
+    private static final JsonSerializer<List<Alarm>> ALARMS_SERIALIZER = new ListSerializer<>(AlarmSerializer.INSTANCE);
+    private static final JsonSerializer<List<Integer>> FUTURE_ALARM_TIMES_SERIALIZER = new ListSerializer<>(IntegerSerializer.INSTANCE);
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000; // Well within the 10 seconds a broadcast receiver has after goAsync()
+    private final Executor writer;
+    private final Lazy<AlarmStateStore> store = new Lazy<>(this::loadStore);
+    private final List<Consumer<AlarmState>> stateListeners = new CopyOnWriteArrayList<>();
 
-    // Singleton instance
-    private AlarmPreferencesUtil(Context context) {
-        super(context, PREFERENCES_NAME);
+    public AlarmPreferencesUtil(Context context) {
+        // The writer thread is only started by the first write
+        this(context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE), AlarmSetterApplication.from(context).getMetricsRegistry(),
+                Executors.newSingleThreadExecutor());
     }
 
-    public static synchronized AlarmPreferencesUtil getInstance(Context context) {
-        if (instance == null) {
-            instance = new AlarmPreferencesUtil(context);
+    /**
+     * @param sharedPreferences preference file holding the alarms, e.g. a fake in host tests
+     * @param metrics registry the reads and writes are recorded in
+     * @param writer executor writing the alarms. Must run at most one task at a time, in the order they were submitted
+     */
+    public AlarmPreferencesUtil(SharedPreferences sharedPreferences, MetricsRegistry metrics, Executor writer) {
+        super(sharedPreferences, metrics);
+        this.writer = writer;
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the AlarmPreferencesUtil instance
+     */
+    public static AlarmPreferencesUtil getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getAlarmPreferencesUtil();
+    }
+
+    /**
+     * Adds a listener that is called with every snapshot written to the shared preferences.
+     * Called on the store's writer thread, so quick successive updates are reported once
+     * @param listener listener to add
+     */
+    public void addStateListener(Consumer<AlarmState> listener) {
+        stateListeners.add(listener);
+    }
+
+    /**
+     * Reads the alarms from the shared preferences into a new store
+     * @return store holding the stored alarms
+     */
+    private AlarmStateStore loadStore() {
+        List<Alarm> alarms = getObjectFromPreferences(KEY_ALARMS, ALARMS_SERIALIZER);
+        List<Integer> futureAlarmTimes = getObjectFromPreferences(KEY_ALARMS_TO_SET_IN_FUTURE, FUTURE_ALARM_TIMES_SERIALIZER);
+        Integer bootCount = getObjectFromPreferences(KEY_BOOT_COUNT, IntegerSerializer.INSTANCE);
+        AlarmState state = AlarmState.of(
+                alarms != null ? alarms : Collections.<Alarm>emptyList(),
+                futureAlarmTimes != null ? futureAlarmTimes : Collections.<Integer>emptyList(),
+                bootCount != null ? bootCount : AlarmState.UNKNOWN_BOOT_COUNT);
+        checkSummary(state);
+        return new AlarmStateStore(state, this, writer);
+    }
+
+    /**
+     * Rebuilds the stored summary from the full lists if it does not match them,
+     * e.g. because it was stored by a version that did not write it
+     * @param state snapshot read from the full lists
+     */
+    private void checkSummary(AlarmState state) {
+        AlarmSummary storedSummary = getObjectFromPreferences(KEY_SUMMARY, AlarmSummarySerializer.INSTANCE);
+        if (state.getSummary().equals(storedSummary != null ? storedSummary : AlarmSummary.EMPTY)) {
+            return;
+        }
+        Log.d("AlarmPreferencesUtil", "Stored alarm summary does not match the alarms, rebuilding it");
+        Editor editor = editPreferences();
+        putSummary(editor, state.getSummary());
+        applyEdit(editor);
+    }
+
+    private void putSummary(Editor editor, AlarmSummary summary) {
+        if (summary.hasAlarms() || summary.hasFutureAlarmTimes()) {
+            putObject(editor, KEY_SUMMARY, summary, AlarmSummarySerializer.INSTANCE);
+        } else {
+            editor.remove(KEY_SUMMARY);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the alarms to the shared preferences in a single commit.
+     * Called by the store's writer thread
+     * @param state snapshot to write
+     */
+    @Override
+    public void persist(AlarmState state) {
+        Editor editor = editPreferences();
+        if (state.hasAlarms()) {
+            putObject(editor, KEY_ALARMS, state.getAlarms(), ALARMS_SERIALIZER);
+            putObject(editor, KEY_BOOT_COUNT, state.getBootCount(), IntegerSerializer.INSTANCE);
+        } else {
+            editor.remove(KEY_ALARMS);
+            editor.remove(KEY_BOOT_COUNT);
+        }
+        if (state.hasFutureAlarmTimes()) {
+            putObject(editor, KEY_ALARMS_TO_SET_IN_FUTURE, state.getFutureAlarmTimes(), FUTURE_ALARM_TIMES_SERIALIZER);
+        } else {
+            editor.remove(KEY_ALARMS_TO_SET_IN_FUTURE);
+        }
+        putSummary(editor, state.getSummary());
+        commitEdit(editor);
+        for (Consumer<AlarmState> listener : stateListeners) {
+            listener.accept(state);
+        }
+    }
+
+    /**
+     * Waits until the alarms updated so far have been written to the shared preferences.
+     * Called before a broadcast finishes, as the process may be killed right after. Does nothing if the alarms were never loaded
+     */
+    public void flush() {
+        if (!store.isInitialized()) {
+            return;
+        }
+        try {
+            if (!store.get().flush(FLUSH_TIMEOUT_MILLIS)) {
+                Log.d("AlarmPreferencesUtil", String.format("Alarms were not written within %d ms", FLUSH_TIMEOUT_MILLIS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the store holding the alarms, for updates that have to be atomic
+     * @return the AlarmStateStore
+     */
+    public AlarmStateStore getStore() {
+        return store.get();
+    }
+
+    /**
+     * Gets the current snapshot of the alarms
+     * @return the AlarmState
+     */
+    public AlarmState getState() {
+        return store.get().get();
+    }
+
+    /**
+     * Gets the counts, next alarm and first future alarm time.
+     * Taken from memory once the alarms are loaded, before that only the summary record is read
+     * @return summary of the alarms
+     */
+    public AlarmSummary getSummary() {
+        if (store.isInitialized()) {
+            return getState().getSummary();
         }
-        return instance;
+        AlarmSummary summary = getObjectFromPreferences(KEY_SUMMARY, AlarmSummarySerializer.INSTANCE);
+        if (summary == null && (valueExists(KEY_ALARMS) || valueExists(KEY_ALARMS_TO_SET_IN_FUTURE))) {
+            // Stored before summaries were written, loading the lists rebuilds it
+            return getState().getSummary();
+        }
+        return summary != null ? summary : AlarmSummary.EMPTY;
+    }
+
+    /**
+     * Gets what the user should be shown about the alarms, reading only the summary
+     * @return status of the alarms
+     */
+    public AlarmStatus getStatus() {
+        return AlarmStatus.of(getSummary());
     }
 
     /**
@@ -37,11 +213,7 @@ public class AlarmPreferencesUtil extends SharedPreferencesUtil {
      * @return List of Integers indicating the time after which alarms should be set in milliseconds
      */
     public List<Integer> getFutureAlarmTimes() {
-        List<Integer> alarmTimes = getObjectFromPreferences(KEY_ALARMS_TO_SET_IN_FUTURE, new TypeToken<List<Integer>>() {});
-        if (alarmTimes == null) {
-            alarmTimes = new ArrayList<>();
-        }
-        return alarmTimes;
+        return new ArrayList<>(getState().getFutureAlarmTimes());
     }
 
     /**
@@ -49,10 +221,7 @@ public class AlarmPreferencesUtil extends SharedPreferencesUtil {
      * @param time The time after which the alarm should sound once the screen has been turned off in milliseconds
      */
     public void addFutureAlarmTime(Integer time) {
-        List<Integer> currentTimes = getFutureAlarmTimes();
-        currentTimes.add(time);
-
-        writeObjectToPreferences(KEY_ALARMS_TO_SET_IN_FUTURE, currentTimes);
+        addFutureAlarmTimes(Collections.singletonList(time));
         Log.d("AlarmPreferencesUtil", "Alarm set to trigger in " + time + " milliseconds!");
     }
 
@@ -61,17 +230,14 @@ public class AlarmPreferencesUtil extends SharedPreferencesUtil {
      * @param newTimes List of integers indicating the time after which an alarm should sound once the screen has been turned off in milliseconds
      */
     public void addFutureAlarmTimes(List<Integer> newTimes) {
-        List<Integer> times = getFutureAlarmTimes();
-        times.addAll(newTimes);
-
-        writeObjectToPreferences(KEY_ALARMS_TO_SET_IN_FUTURE, times);
+        store.get().updateAndGet(state -> state.withFutureAlarmTimes(newTimes));
     }
 
     /**
      * Removes all future alarm times
      */
     public void removeFutureAlarmTimes() {
-        removeValueFromPreferences(KEY_ALARMS_TO_SET_IN_FUTURE);
+        store.get().updateAndGet(AlarmState::withoutFutureAlarmTimes);
     }
 
     /**
@@ -79,8 +245,7 @@ public class AlarmPreferencesUtil extends SharedPreferencesUtil {
      * @return Boolean indicating whether an alarm will be set in the future
      */
     public Boolean futureAlarmWillBeSet() {
-        List<Integer> alarmList = getFutureAlarmTimes();
-        return alarmList.size() > 0;
+        return getSummary().hasFutureAlarmTimes();
     }
 
     /**
@@ -88,50 +253,16 @@ public class AlarmPreferencesUtil extends SharedPreferencesUtil {
      * @return List of alarms
      */
     public List<Alarm> getAlarms() {
-        List<Alarm> alarms = getObjectFromPreferences(KEY_ALARMS, new TypeToken<List<Alarm>>() {});
-        if (alarms == null) {
-            alarms = new ArrayList<>();
-        }
-        return alarms;
-    }
-
-    /**
-     * Add an actual alarm to the shared preferences
-     * @param alarm Alarm to add to shared preferences
-     */
-    public void addAlarm(Alarm alarm) {
-        List<Alarm> alarms = getAlarms();
-        alarms.add(alarm);
-
-        writeObjectToPreferences(KEY_ALARMS, alarms);
-    }
-
-    /**
-     * Adds multiple alarms to the shared preferences
-     * @param newAlarms List of Alarms to add
-     */
-    public void addAlarms(List<Alarm> newAlarms) {
-        List<Alarm> alarms = getAlarms();
-        alarms.addAll(newAlarms);
-
-        writeObjectToPreferences(KEY_ALARMS, alarms);
-    }
-
-    /**
-     * Removes all alarms from the shared preferences
-     */
-    public void removeAlarms() {
-        removeValueFromPreferences(KEY_ALARMS);
+        return new ArrayList<>(getState().getAlarms());
     }
 
     /**
-     * Removes a specific alarm from the shared preferences
-     * @param alarm alarm to remove
+     * Get an alarm that has been set by its request code
+     * @param requestCode request code of the alarm
+     * @return The alarm, null if no alarm with the request code is set
      */
-    public void removeAlarm(Alarm alarm) {
-        List<Alarm> alarms = getAlarms();
-        alarms.remove(alarm);
-        writeObjectToPreferences(KEY_ALARMS, alarms);
+    public Alarm getAlarm(int requestCode) {
+        return getState().getAlarm(requestCode);
     }
 
     /**
@@ -139,7 +270,6 @@ public class AlarmPreferencesUtil extends SharedPreferencesUtil {
      * @return Boolean indicating whether an alarm exists in the shared preferences
      */
     public Boolean alarmSet() {
-        List<Alarm> alarms = getAlarms();
-        return alarms.size() > 0;
+        return getSummary().hasAlarms();
     }
 }
@@ -2,69 +2,81 @@ package com.customsolutions.automaticalarmsetter.util;
 
 import android.content.Context;
 
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
 import com.customsolutions.automaticalarmsetter.R;
+import com.customsolutions.automaticalarmsetter.core.metrics.Counter;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
 import com.customsolutions.automaticalarmsetter.service.ForegroundAlarmSetterService;
 
 /**
  * Singleton class containing methods meant to help set the contents of the foreground notification
  */
 public class ForegroundNotificationTextUtil {
-    private static ForegroundNotificationTextUtil instance;
     private final AlarmPreferencesUtil alarmPreferencesUtil;
+    private final Counter notificationsPostedCounter;
 
-    private ForegroundNotificationTextUtil(Context context) {
+    public ForegroundNotificationTextUtil(Context context) {
         alarmPreferencesUtil = AlarmPreferencesUtil.getInstance(context);
+        notificationsPostedCounter = AlarmSetterApplication.from(context).getMetricsRegistry().counter("notifications.posted");
     }
 
-    public static synchronized ForegroundNotificationTextUtil getInstance(Context context) {
-        if (instance == null) {
-            instance = new ForegroundNotificationTextUtil(context);
-        }
-        return instance;
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the ForegroundNotificationTextUtil instance
+     */
+    public static ForegroundNotificationTextUtil getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getForegroundNotificationTextUtil();
     }
 
     /**
      * Automatically update the contents of the foreground notification
      */
     public void updateNotificationContents(Context context) {
-        boolean alarmWillBeSet = alarmPreferencesUtil.futureAlarmWillBeSet();
-        boolean alarmIsSet = alarmPreferencesUtil.alarmSet();
-        if (alarmIsSet) {
-            setNotificationContentsToNextAlarmTime(context);
-        } else if (alarmWillBeSet) {
-            setNotificationContentsToFutureAlarmTime(context);
+        AlarmStatus status = alarmPreferencesUtil.getStatus();
+        if (status.getKind() == AlarmStatus.Kind.NO_ALARM) {
+            return;
         }
+        ForegroundAlarmSetterService.updateNotificationText(context, getTitleText(context, status), getContentText(context, status));
+        recordNotificationPost();
     }
 
     /**
-     * Sets the contents of the notification to show when the next alarm will ring
+     * Counts a post of the foreground notification
      */
-    private void setNotificationContentsToNextAlarmTime(Context context) {
-        // Get epoch time when next alarm will go off
-        long epochTime = alarmPreferencesUtil.getAlarms().get(0).getEpochTriggerTimeMillis();
-
-        // Update notification text to display when the next one goes off
-        String alarmIsSetFormatString = context.getString(R.string.alarm_is_set_format_text);
-        String ringTimeString = TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(epochTime);
-
-        String notificationTextString = String.format(alarmIsSetFormatString, ringTimeString);
-        String titleTextString = context.getString(R.string.alarm_is_set_notification_title_text);
-
-        ForegroundAlarmSetterService.updateNotificationText(context, titleTextString, notificationTextString);
+    public void recordNotificationPost() {
+        notificationsPostedCounter.increment();
     }
 
     /**
-     * Sets the contents of the notification to show when the alarm will ring after the screen is turned off
+     * Gets the title of the notification for an alarm status
+     * @param context context of the application
+     * @param status status to show, must not be NO_ALARM
+     * @return title of the notification
      */
-    private void setNotificationContentsToFutureAlarmTime(Context context) {
-        // Get the notifications text
-        String notificationTitleText = context.getString(R.string.alarm_will_be_set_notification_title);
-        // Get the content text. Content shows how long after turning off the screen the alarm will ring
-        String alarmWillBeSetNotificationContent = context.getString(R.string.alarm_will_be_set_format_text);
-        // Get the time when the alarm will go off from shared preferences
-        String timeString = TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(alarmPreferencesUtil.getFutureAlarmTimes().get(0));
-        String notificationContentString = String.format(alarmWillBeSetNotificationContent, timeString);
+    public String getTitleText(Context context, AlarmStatus status) {
+        if (status.getKind() == AlarmStatus.Kind.ALARM_SET) {
+            return context.getString(R.string.alarm_is_set_notification_title_text);
+        }
+        return context.getString(R.string.alarm_will_be_set_notification_title);
+    }
 
-        ForegroundAlarmSetterService.updateNotificationText(context, notificationTitleText, notificationContentString);
+    /**
+     * Gets the content of the notification for an alarm status.
+     * Shows when the next alarm will ring, or how long after turning off the screen the alarm will ring
+     * @param context context of the application
+     * @param status status to show, must not be NO_ALARM
+     * @return content of the notification
+     */
+    public String getContentText(Context context, AlarmStatus status) {
+        if (status.getKind() == AlarmStatus.Kind.ALARM_SET) {
+            // Get epoch time when next alarm will go off
+            long epochTime = status.getNextAlarm().getEpochTriggerTimeMillis();
+            String ringTimeString = TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(epochTime);
+            return String.format(context.getString(R.string.alarm_is_set_format_text), ringTimeString);
+        }
+        // Get the time after which the first alarm will go off
+        String timeString = TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(status.getFutureAlarmTime());
+        return String.format(context.getString(R.string.alarm_will_be_set_format_text), timeString);
     }
 }
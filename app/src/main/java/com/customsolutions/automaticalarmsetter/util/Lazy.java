@@ -0,0 +1,45 @@
+package com.customsolutions.automaticalarmsetter.util;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free holder of a lazily created value.
+ * If several threads ask for the value at the same time more than one may be created, but only the first one
+ * to be published is ever returned. The factory must therefore not have side effects.
+ * @param <T> type of the value
+ */
+public class Lazy<T> {
+
+    private final AtomicReference<T> value = new AtomicReference<>();
+    private final Supplier<T> factory;
+
+    public Lazy(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Gets the value, creating it on first use
+     * @return the value
+     */
+    public T get() {
+        T currentValue = value.get();
+        if (currentValue != null) {
+            return currentValue;
+        }
+        T createdValue = factory.get();
+        if (value.compareAndSet(null, createdValue)) {
+            return createdValue;
+        }
+        // Another thread published its value first
+        return value.get();
+    }
+
+    /**
+     * Checks whether the value has been created
+     * @return Boolean indicating whether the value exists
+     */
+    public boolean isInitialized() {
+        return value.get() != null;
+    }
+}
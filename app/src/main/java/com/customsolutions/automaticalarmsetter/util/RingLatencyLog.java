@@ -0,0 +1,177 @@
+package com.customsolutions.automaticalarmsetter.util;
+
+import com.customsolutions.automaticalarmsetter.model.RingLatencyRecord;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Ring latency of the most recent alarms stored as fixed-size binary records in a circular file, like the AlarmHistoryLog.
+ * Once the file holds its capacity, each append overwrites the oldest record, so an append writes one record and the header
+ * in place instead of rewriting every record.
+ * <p>
+ * Layout, big-endian: a header of magic (int), capacity (int) and the number of records ever appended (long),
+ * followed by up to capacity records of the scheduled, received, activity created and ringtone playing times (4 longs) and a checksum (int).
+ * The record with sequence number n is stored in slot n % capacity, and its checksum covers the sequence number,
+ * so records torn by a crash or still holding an overwritten record are skipped when reading
+ */
+public class RingLatencyLog implements Closeable {
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 36;
+    private static final int MAGIC = 0x524c4731; // "RLG1"
+    private static final int COUNT_OFFSET = 8;
+    private static final int CHECKSUM_OFFSET = 32;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int capacity;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer countBuffer = ByteBuffer.allocate(8);
+    private final CRC32 crc = new CRC32();
+    private long count; // Number of records ever appended
+
+    /**
+     * Opens the log, creating it if it does not exist.
+     * A file written with a different capacity or format is started over
+     * @param path file holding the records
+     * @param capacity maximum number of records kept
+     * @throws IOException if the file cannot be read or written
+     */
+    public RingLatencyLog(File path, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+        try {
+            this.count = readHeader();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header, or writes a new one if it is missing or does not match
+     * @return number of records ever appended
+     */
+    private long readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() >= HEADER_SIZE) {
+            readFully(header, 0);
+            header.flip();
+            long storedCount = header.getLong(COUNT_OFFSET);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == capacity && storedCount >= 0
+                    && channel.size() >= HEADER_SIZE + Math.min(storedCount, capacity) * RECORD_SIZE) {
+                return storedCount;
+            }
+        }
+        header.clear();
+        header.putInt(MAGIC).putInt(capacity).putLong(0);
+        header.flip();
+        channel.truncate(0);
+        writeFully(header, 0);
+        return 0;
+    }
+
+    /**
+     * Appends a record, overwriting the oldest one if the log is full
+     * @param record record to append
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void append(RingLatencyRecord record) throws IOException {
+        recordBuffer.clear();
+        recordBuffer.putLong(record.getScheduledTimeMillis())
+                .putLong(record.getReceivedTimeMillis())
+                .putLong(record.getActivityCreatedTimeMillis())
+                .putLong(record.getRingtonePlayingTimeMillis())
+                .putInt(checksum(crc, count, recordBuffer, 0));
+        recordBuffer.flip();
+        writeFully(recordBuffer, HEADER_SIZE + (count % capacity) * RECORD_SIZE);
+
+        // A crash before the count is written loses the record, a crash after it may leave a record that fails its checksum
+        count++;
+        countBuffer.clear();
+        countBuffer.putLong(count);
+        countBuffer.flip();
+        writeFully(countBuffer, COUNT_OFFSET);
+    }
+
+    /**
+     * Gets the number of records kept
+     * @return number of records, at most the capacity
+     */
+    public synchronized int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    /**
+     * Reads the records kept, with a single read of at most capacity records
+     * @return List of records, oldest first
+     * @throws IOException if the file cannot be read
+     */
+    public synchronized List<RingLatencyRecord> readAll() throws IOException {
+        long first = Math.max(0, count - capacity);
+        ByteBuffer records = ByteBuffer.allocate(size() * RECORD_SIZE);
+        readFully(records, HEADER_SIZE);
+        List<RingLatencyRecord> result = new ArrayList<>(size());
+        CRC32 readCrc = new CRC32();
+        for (long sequence = first; sequence < count; sequence++) {
+            int offset = (int) (sequence % capacity) * RECORD_SIZE;
+            if (records.getInt(offset + CHECKSUM_OFFSET) != checksum(readCrc, sequence, records, offset)) {
+                // Torn by a crash, or still holding an older record
+                continue;
+            }
+            result.add(new RingLatencyRecord(records.getLong(offset), records.getLong(offset + 8),
+                    records.getLong(offset + 16), records.getLong(offset + 24)));
+        }
+        return result;
+    }
+
+    /**
+     * Computes the checksum of a record's times and its sequence number, so an older record left in the slot does not pass
+     * @param crc checksum state to reuse
+     * @param sequence sequence number of the record
+     * @param buffer heap buffer holding the record
+     * @param offset offset of the record in the buffer
+     * @return checksum of the record
+     */
+    private static int checksum(CRC32 crc, long sequence, ByteBuffer buffer, int offset) {
+        crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (sequence >>> shift));
+        }
+        crc.update(buffer.array(), buffer.arrayOffset() + offset, CHECKSUM_OFFSET);
+        return (int) crc.getValue();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Ring latency log ended early");
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+}
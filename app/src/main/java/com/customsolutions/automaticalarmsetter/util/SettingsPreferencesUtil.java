@@ -0,0 +1,86 @@
+package com.customsolutions.automaticalarmsetter.util;
+
+import android.content.Context;
+
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.serialization.IntegerSerializer;
+
+/**
+ * Singleton utility class for the user's settings in the shared storage
+ */
+public class SettingsPreferencesUtil extends SharedPreferencesUtil {
+    private static final String PREFERENCES_NAME = "SettingsPreferences";
+    private static final String KEY_SNOOZE_DURATION_MINUTES = "snoozeDurationMinutes";
+    private static final String KEY_LAST_ALARM_DURATION_MILLIS = "lastAlarmDurationMillis";
+    public static final int DEFAULT_SNOOZE_DURATION_MINUTES = 10;
+    public static final int MAX_SNOOZE_DURATION_MINUTES = 120;
+    public static final int DEFAULT_ALARM_DURATION_MILLIS = 8 * 3600 * 1000;
+
+    public SettingsPreferencesUtil(Context context) {
+        super(context, PREFERENCES_NAME);
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the SettingsPreferencesUtil instance
+     */
+    public static SettingsPreferencesUtil getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getSettingsPreferencesUtil();
+    }
+
+    /**
+     * Gets how long an alarm is snoozed for
+     * @return Snooze duration in minutes, DEFAULT_SNOOZE_DURATION_MINUTES if it has not been set
+     */
+    public int getSnoozeDurationMinutes() {
+        Integer minutes = getObjectFromPreferences(KEY_SNOOZE_DURATION_MINUTES, IntegerSerializer.INSTANCE);
+        if (minutes == null || minutes <= 0) {
+            return DEFAULT_SNOOZE_DURATION_MINUTES;
+        }
+        // Values stored before the upper bound existed could overflow when converted to milliseconds
+        return Math.min(minutes, MAX_SNOOZE_DURATION_MINUTES);
+    }
+
+    /**
+     * Gets how long an alarm is snoozed for
+     * @return Snooze duration in milliseconds
+     */
+    public int getSnoozeDurationMillis() {
+        return getSnoozeDurationMinutes() * 60 * 1000;
+    }
+
+    /**
+     * Sets how long an alarm is snoozed for
+     * @param minutes Snooze duration in minutes. Must be between 1 and MAX_SNOOZE_DURATION_MINUTES
+     */
+    public void setSnoozeDurationMinutes(int minutes) {
+        if (minutes <= 0 || minutes > MAX_SNOOZE_DURATION_MINUTES) {
+            throw new IllegalArgumentException(String.format("Snooze duration must be between 1 and %d minutes, was %d", MAX_SNOOZE_DURATION_MINUTES, minutes));
+        }
+        writeObjectToPreferences(KEY_SNOOZE_DURATION_MINUTES, minutes, IntegerSerializer.INSTANCE);
+    }
+
+    /**
+     * Gets the duration the user last set an alarm with, used when arming without choosing a duration
+     * @return Duration in milliseconds, DEFAULT_ALARM_DURATION_MILLIS if no alarm has been set yet
+     */
+    public int getLastAlarmDurationMillis() {
+        Integer millis = getObjectFromPreferences(KEY_LAST_ALARM_DURATION_MILLIS, IntegerSerializer.INSTANCE);
+        if (millis == null) {
+            return DEFAULT_ALARM_DURATION_MILLIS;
+        }
+        return millis;
+    }
+
+    /**
+     * Remembers the duration the user set an alarm with
+     * @param millis Duration in milliseconds. Must be positive
+     */
+    public void setLastAlarmDurationMillis(int millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Alarm duration must be positive, was " + millis);
+        }
+        writeObjectToPreferences(KEY_LAST_ALARM_DURATION_MILLIS, millis, IntegerSerializer.INSTANCE);
+    }
+}
@@ -4,40 +4,40 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.core.metrics.Counter;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.metrics.Timer;
+import com.customsolutions.automaticalarmsetter.serialization.JsonSerializer;
 
 
 /**
  * Utility class for handling shared preferences in the application.
  * Only works with preferences who's value is a String
- * Provides methods to serialize/deserialize java classes to JSON objects and write them to the shared preferences
+ * Provides methods to serialize/deserialize java classes to JSON objects and write them to the shared preferences.
+ * Serialization uses hand-written JsonSerializers instead of reflection so that release builds can be shrunk
  */
 public class SharedPreferencesUtil {
 
     private final SharedPreferences sharedPreferences;
+    // Shared by all preference files
+    private final Timer readTimer;
+    private final Counter writeCounter;
+    private final Counter bytesSerializedCounter;
 
     public SharedPreferencesUtil(Context context, String sharedPreferencesName) {
-        sharedPreferences = context.getSharedPreferences(sharedPreferencesName, Context.MODE_PRIVATE);
+        this(context.getSharedPreferences(sharedPreferencesName, Context.MODE_PRIVATE), AlarmSetterApplication.from(context).getMetricsRegistry());
     }
 
     /**
-     * Serializes a JAVA object to Json
-     * @param object object to serialize
-     * @return Json string
-     */
-    private <T> String serializeToJson(T object) {
-        return new Gson().toJson(object);
-    }
-
-    /**
-     * Deserializes Json string to JAVA object
-     * @param jsonString string to deserialize. Must be a valid string that can be parsed to a JAVA object of specified type.
-     * @param typeToken typeToken of the JAVA object type
-     * @return JAVA object
+     * @param sharedPreferences preference file to read and write, e.g. a fake in host tests
+     * @param metrics registry the reads and writes are recorded in
      */
-    private <T> T deserializeFromJson(String jsonString, TypeToken<T> typeToken) {
-        return new Gson().fromJson(jsonString, typeToken.getType());
+    public SharedPreferencesUtil(SharedPreferences sharedPreferences, MetricsRegistry metrics) {
+        this.sharedPreferences = sharedPreferences;
+        readTimer = metrics.timer("preferences.read");
+        writeCounter = metrics.counter("preferences.writes");
+        bytesSerializedCounter = metrics.counter("preferences.bytesSerialized");
     }
 
     /**
@@ -48,7 +48,7 @@ public class SharedPreferencesUtil {
     private void writeJsonToPreferences(String key, String jsonString) {
         Editor editor = sharedPreferences.edit();
         editor.putString(key, jsonString);
-        editor.apply();
+        applyEdit(editor);
     }
 
     /**
@@ -58,31 +58,82 @@ public class SharedPreferencesUtil {
     protected void removeValueFromPreferences(String key) {
         Editor editor = sharedPreferences.edit();
         editor.remove(key);
-        editor.apply();
+        applyEdit(editor);
     }
 
     /**
      * Writes a JAVA object to shared preferences
      * @param key preference who's value to set
      * @param object object to serialize
+     * @param serializer serializer of the JAVA object's type
      */
-    protected <T> void writeObjectToPreferences(String key, T object) {
-        String jsonString = serializeToJson(object);
+    protected <T> void writeObjectToPreferences(String key, T object, JsonSerializer<T> serializer) {
+        String jsonString = serializer.toJson(object);
+        recordSerialized(jsonString);
         writeJsonToPreferences(key, jsonString);
     }
 
+    /**
+     * Starts an edit of the shared preferences, for writing several values at once
+     * @return Editor whose changes have to be written with commitEdit or applyEdit
+     */
+    protected Editor editPreferences() {
+        return sharedPreferences.edit();
+    }
+
+    /**
+     * Puts a JAVA object into an edit of the shared preferences
+     * @param editor editor returned by editPreferences
+     * @param key preference who's value to set
+     * @param object object to serialize
+     * @param serializer serializer of the JAVA object's type
+     */
+    protected <T> void putObject(Editor editor, String key, T object, JsonSerializer<T> serializer) {
+        String jsonString = serializer.toJson(object);
+        recordSerialized(jsonString);
+        editor.putString(key, jsonString);
+    }
+
+    /**
+     * Writes an edit to disk before returning, counting it as one write however many values it changes
+     * @param editor editor returned by editPreferences
+     * @return Boolean indicating whether the values were written
+     */
+    protected boolean commitEdit(Editor editor) {
+        writeCounter.increment();
+        return editor.commit();
+    }
+
+    /**
+     * Applies an edit in memory and writes it to disk in the background, counting it as one write however many values it changes
+     * @param editor editor returned by editPreferences
+     */
+    protected void applyEdit(Editor editor) {
+        writeCounter.increment();
+        editor.apply();
+    }
+
+    /**
+     * Records the size of a serialized value about to be written
+     * @param jsonString serialized value
+     */
+    private void recordSerialized(String jsonString) {
+        // The JSON is ASCII, so its length is its size on disk
+        bytesSerializedCounter.add(jsonString.length());
+    }
+
     /**
      * Gets JAVA object from shared preferences
      * @param key key who's value to get
-     * @param typeToken typeToken of the JAVA object's type to receive
+     * @param serializer serializer of the JAVA object's type to receive
      * @return JAVA object stored in preferences, null if it does not exist
      */
-    protected <T> T getObjectFromPreferences(String key, TypeToken<T> typeToken) {
+    protected <T> T getObjectFromPreferences(String key, JsonSerializer<T> serializer) {
+        long startNanos = System.nanoTime();
         String jsonString = sharedPreferences.getString(key, "");
-        if (!jsonString.isEmpty()) {
-            return deserializeFromJson(jsonString, typeToken);
-        }
-        return null;
+        T object = jsonString.isEmpty() ? null : serializer.fromJson(jsonString);
+        readTimer.recordSince(startNanos);
+        return object;
     }
 
     /**
@@ -0,0 +1,72 @@
+package com.customsolutions.automaticalarmsetter.util;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Utility class for logging how long it takes to start the application and its activities.
+ * Logs process start -> Activity.onCreate -> first frame for every launch under the 'StartupTiming' tag.
+ * A launch only counts as a cold start when the activity is what started the process, not e.g. the RingActivity started by the AlarmReceiver
+ */
+public class StartupTimingUtil {
+    private static final String TAG = "StartupTiming";
+    private static boolean firstLaunch = true; // Only accessed on the main thread
+    private static boolean startedByOtherComponent = false; // Only accessed on the main thread
+
+    // Empty private constructor so a class could never be initiated
+    private StartupTimingUtil() {
+
+    }
+
+    /**
+     * Logs how long after the process started the application was created. Must be called on the main thread
+     */
+    public static void markApplicationCreated() {
+        // The launch of an activity starting the process is already queued when this is posted, while an activity started by a receiver,
+        // service or provider that started the process is only queued later. So an activity created after this runs did not start the process
+        new Handler(Looper.getMainLooper()).post(() -> startedByOtherComponent = true);
+        Log.d(TAG, String.format("Application.onCreate %d ms after process start", SystemClock.uptimeMillis() - Process.getStartUptimeMillis()));
+    }
+
+    /**
+     * Starts timing the launch of an activity. Must be called right after super.onCreate, before setContentView
+     * @param activity activity that is being launched
+     */
+    public static void trackLaunch(Activity activity) {
+        long onCreateTime = SystemClock.uptimeMillis();
+        boolean coldStart = firstLaunch && !startedByOtherComponent;
+        firstLaunch = false;
+        String name = activity.getClass().getSimpleName();
+        if (coldStart) {
+            Log.d(TAG, String.format("%s.onCreate %d ms after process start (cold start)", name, onCreateTime - Process.getStartUptimeMillis()));
+        }
+
+        View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn = false;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                long firstFrameTime = SystemClock.uptimeMillis();
+                if (coldStart) {
+                    Log.d(TAG, String.format("%s first frame %d ms after onCreate, %d ms after process start",
+                            name, firstFrameTime - onCreateTime, firstFrameTime - Process.getStartUptimeMillis()));
+                } else {
+                    Log.d(TAG, String.format("%s first frame %d ms after onCreate", name, firstFrameTime - onCreateTime));
+                }
+                // Listeners can't be removed while the draw is being dispatched
+                decorView.post(() -> decorView.getViewTreeObserver().removeOnDrawListener(this));
+            }
+        });
+    }
+}
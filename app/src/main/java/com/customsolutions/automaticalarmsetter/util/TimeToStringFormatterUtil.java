@@ -1,7 +1,5 @@
 package com.customsolutions.automaticalarmsetter.util;
 
-import android.util.Log;
-
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -28,8 +26,6 @@ public class TimeToStringFormatterUtil {
         int hours = time / 1000 / 3600;
         int minutes = (time - hours * 3600 * 1000) / 1000 / 60;
         int seconds = (time - hours * 3600 * 1000 - minutes * 60 * 1000) / 1000;
-        Log.d("TimeToStringFormatterUtil", String.format(Locale.getDefault(), "Converted %d milliseconds to %d hours, %d minutes and %d seconds", time, hours, minutes, seconds));
-
         boolean andRequired = false;
 
         String returnString = "";
@@ -0,0 +1,370 @@
+package com.customsolutions.automaticalarmsetter.viewmodel;
+
+import android.app.Application;
+import android.content.Intent;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.customsolutions.automaticalarmsetter.R;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.model.MainUiState;
+import com.customsolutions.automaticalarmsetter.model.PlanImportState;
+import com.customsolutions.automaticalarmsetter.serialization.AlarmPlanSerializer;
+import com.customsolutions.automaticalarmsetter.service.ForegroundAlarmSetterService;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.ForegroundNotificationTextUtil;
+import com.customsolutions.automaticalarmsetter.util.Lazy;
+import com.customsolutions.automaticalarmsetter.util.SettingsPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ViewModel of the MainActivity. Survives configuration changes.
+ * Reads the alarm state from the shared storage and formats its strings on a background thread,
+ * and only does so again when the alarm state changes, not when the number pickers are spun.
+ */
+public class MainViewModel extends AndroidViewModel {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final MutableLiveData<MainUiState> uiState = new MutableLiveData<>();
+    private final MutableLiveData<Integer> snoozeDurationMinutes = new MutableLiveData<>();
+    private final MutableLiveData<PlanImportState> planImportState = new MutableLiveData<>(PlanImportState.NONE);
+    // Components are created on the executor's thread on first use, not when the activity is created
+    private final Lazy<AlarmHandler> alarmHandler;
+    private final Lazy<AlarmPreferencesUtil> alarmPreferencesUtil;
+
+    // Memoized state, only accessed on the executor's thread
+    private MainUiState alarmUiState; // State while an alarm is or will be set, null if no alarm will be set
+    private MainUiState noAlarmUiState;
+    private MainUiState noDurationUiState;
+    private boolean alarmStateLoaded = false;
+    private boolean durationChosen = false;
+    private MainUiState lastPublishedState;
+    private AlarmPlan pendingPlan; // Plan waiting for the user to confirm the import, null if there is none
+
+    public MainViewModel(@NonNull Application application) {
+        super(application);
+        alarmHandler = new Lazy<>(() -> AlarmHandler.getInstance(application));
+        alarmPreferencesUtil = new Lazy<>(() -> AlarmPreferencesUtil.getInstance(application));
+    }
+
+    public LiveData<MainUiState> getUiState() {
+        return uiState;
+    }
+
+    public LiveData<Integer> getSnoozeDurationMinutes() {
+        return snoozeDurationMinutes;
+    }
+
+    public LiveData<PlanImportState> getPlanImportState() {
+        return planImportState;
+    }
+
+    /**
+     * Reads the alarm state again. Called whenever the activity is opened
+     */
+    public void refresh() {
+        executor.execute(() -> {
+            // A missed alarm must not be shown as the next alarm
+            alarmHandler.get().compactAlarms();
+            loadAlarmState();
+            publishState();
+            snoozeDurationMinutes.postValue(SettingsPreferencesUtil.getInstance(getApplication()).getSnoozeDurationMinutes());
+        });
+    }
+
+    /**
+     * Stores how long alarms are snoozed for
+     * @param minutes snooze duration chosen by the user, between 1 and SettingsPreferencesUtil.MAX_SNOOZE_DURATION_MINUTES
+     */
+    public void setSnoozeDurationMinutes(int minutes) {
+        Application application = getApplication();
+        executor.execute(() -> {
+            SettingsPreferencesUtil.getInstance(application).setSnoozeDurationMinutes(minutes);
+            snoozeDurationMinutes.postValue(minutes);
+        });
+    }
+
+    /**
+     * Called whenever one of the number pickers changes. Does no I/O or formatting
+     * @param hours chosen hours
+     * @param minutes chosen minutes
+     * @param seconds chosen seconds
+     */
+    public void onDurationChanged(int hours, int minutes, int seconds) {
+        boolean chosen = hours != 0 || minutes != 0 || seconds != 0;
+        executor.execute(() -> {
+            if (chosen == durationChosen) {
+                return;
+            }
+            durationChosen = chosen;
+            publishState();
+        });
+    }
+
+    /**
+     * Cancels the alarms that are or will be set, or sets a future alarm with the given duration if there are none.
+     * @param hours chosen hours
+     * @param minutes chosen minutes
+     * @param seconds chosen seconds
+     */
+    public void onSetAlarmButtonClick(int hours, int minutes, int seconds) {
+        Application application = getApplication();
+        executor.execute(() -> {
+            Intent serviceIntent = new Intent(application, ForegroundAlarmSetterService.class);
+
+            boolean futureAlarmsWillBeSet = alarmPreferencesUtil.get().futureAlarmWillBeSet();
+            boolean alarmIsSet = alarmPreferencesUtil.get().alarmSet();
+            if (alarmIsSet) {
+                // At least one alarm is set, cancel them
+                Log.d("MainViewModel", "Cancelling alarms...");
+                alarmHandler.get().cancelAlarms();
+                Log.d("MainViewModel", "Alarms cancelled!. Stopping foreground service...");
+                application.stopService(serviceIntent);
+            } else if (!futureAlarmsWillBeSet) {
+                // No alarms set, add future alarm time to shared preferences
+                Log.d("MainViewModel", "Adding future alarm time to shared preferences");
+                Integer time = (hours * 3600 + minutes * 60 + seconds) * 1000; // Time in milliseconds
+                alarmPreferencesUtil.get().addFutureAlarmTime(time);
+                SettingsPreferencesUtil.getInstance(application).setLastAlarmDurationMillis(time);
+
+                // Start Alarm Setter Service
+                Log.d("MainViewModel", "Starting ForegroundAlarmSetterService...");
+                application.startService(serviceIntent);
+                Log.d("MainViewModel", "ForegroundAlarmSetterService started!");
+            } else { // Future alarms will be set, cancel them
+                Log.d("MainViewModel", "Cancelling old future alarms and stopping foreground service...");
+                alarmPreferencesUtil.get().removeFutureAlarmTimes();
+                application.stopService(serviceIntent);
+                Log.d("MainViewModel", "Old alarms cancelled and foreground service stopped!");
+            }
+            loadAlarmState();
+            publishState();
+        });
+    }
+
+    /**
+     * Imports an alarm plan from a document. The plan is parsed as a stream and applied with a single write and a single bulk schedule
+     * Failures are published through the plan import state
+     * @param uri document holding the plan
+     * @param confirmFirst whether the user has to confirm the plan before it is applied, e.g. when another app shared it
+     */
+    public void importPlan(Uri uri, boolean confirmFirst) {
+        executor.execute(() -> {
+            AlarmPlan plan = readPlan(uri);
+            if (plan == null) {
+                return;
+            }
+            if (confirmFirst) {
+                pendingPlan = plan;
+                planImportState.postValue(PlanImportState.confirmationNeeded(describePlan(plan)));
+                return;
+            }
+            applyPlan(plan);
+        });
+    }
+
+    /**
+     * Applies the plan the user confirmed
+     */
+    public void confirmPlanImport() {
+        executor.execute(() -> {
+            AlarmPlan plan = pendingPlan;
+            pendingPlan = null;
+            planImportState.postValue(PlanImportState.NONE);
+            if (plan != null) {
+                applyPlan(plan);
+            }
+        });
+    }
+
+    /**
+     * Drops the plan waiting for confirmation, or clears a failure once it has been shown
+     */
+    public void dismissPlanImport() {
+        executor.execute(() -> {
+            pendingPlan = null;
+            planImportState.postValue(PlanImportState.NONE);
+        });
+    }
+
+    /**
+     * Reads an alarm plan from a document, publishing a failure if it cannot be read or holds no alarms
+     * @param uri document holding the plan
+     * @return the plan, null if it could not be imported
+     */
+    private AlarmPlan readPlan(Uri uri) {
+        Application application = getApplication();
+        AlarmPlan plan;
+        try (InputStream inputStream = application.getContentResolver().openInputStream(uri)) {
+            if (inputStream == null) {
+                Log.d("MainViewModel", "Could not open " + uri);
+                planImportState.postValue(PlanImportState.failed(application.getString(R.string.import_plan_unreadable_text)));
+                return null;
+            }
+            JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+            plan = AlarmPlanSerializer.INSTANCE.read(reader);
+        } catch (IOException | SecurityException e) {
+            Log.d("MainViewModel", "Could not read alarm plan: " + e);
+            planImportState.postValue(PlanImportState.failed(application.getString(R.string.import_plan_unreadable_text)));
+            return null;
+        } catch (IllegalStateException | NumberFormatException | JsonParseException e) {
+            Log.d("MainViewModel", "Could not parse alarm plan: " + e);
+            planImportState.postValue(PlanImportState.failed(application.getString(R.string.import_plan_invalid_text)));
+            return null;
+        }
+        if (plan.isEmpty()) {
+            Log.d("MainViewModel", "Alarm plan is empty!");
+            planImportState.postValue(PlanImportState.failed(application.getString(R.string.import_plan_empty_text)));
+            return null;
+        }
+        return plan;
+    }
+
+    /**
+     * Describes a plan for the user to confirm: how many alarms it holds and when the first one rings
+     * @param plan plan to describe, must not be empty
+     * @return the description
+     */
+    private String describePlan(AlarmPlan plan) {
+        Application application = getApplication();
+        int alarmCount = plan.getFutureAlarmTimes().size() + plan.getEpochTriggerTimesMillis().size();
+        String firstRingText;
+        if (!plan.getEpochTriggerTimesMillis().isEmpty()) {
+            long epochTime = Collections.min(plan.getEpochTriggerTimesMillis());
+            firstRingText = application.getString(R.string.import_plan_first_ring_time_format_text,
+                    TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(epochTime));
+        } else {
+            int futureAlarmTime = Collections.min(plan.getFutureAlarmTimes());
+            firstRingText = application.getString(R.string.import_plan_first_ring_delay_format_text,
+                    TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(futureAlarmTime));
+        }
+        return application.getString(R.string.import_plan_confirmation_format_text, alarmCount, firstRingText);
+    }
+
+    /**
+     * Applies a plan that has been read, starting the foreground service if it was not running yet
+     * @param plan plan to apply
+     */
+    private void applyPlan(AlarmPlan plan) {
+        Application application = getApplication();
+        // The service runs whenever an alarm is or will be set
+        boolean serviceRunning = alarmPreferencesUtil.get().getStatus().getKind() != AlarmStatus.Kind.NO_ALARM;
+        alarmHandler.get().importPlan(plan);
+        if (alarmPreferencesUtil.get().getStatus().getKind() != AlarmStatus.Kind.NO_ALARM) {
+            if (serviceRunning) {
+                ForegroundNotificationTextUtil.getInstance(application).updateNotificationContents(application);
+            } else {
+                application.startService(new Intent(application, ForegroundAlarmSetterService.class));
+            }
+        }
+        loadAlarmState();
+        publishState();
+    }
+
+    /**
+     * Exports the alarms that are and will be set as an alarm plan, written to the document as a stream
+     * @param uri document to write the plan to
+     */
+    public void exportPlan(Uri uri) {
+        Application application = getApplication();
+        executor.execute(() -> {
+            AlarmPlan plan = AlarmPlan.of(alarmPreferencesUtil.get().getState());
+            try (OutputStream outputStream = application.getContentResolver().openOutputStream(uri)) {
+                if (outputStream == null) {
+                    Log.d("MainViewModel", "Could not open " + uri);
+                    return;
+                }
+                JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+                AlarmPlanSerializer.INSTANCE.write(writer, plan);
+                writer.flush();
+            } catch (IOException e) {
+                Log.d("MainViewModel", "Could not export alarm plan: " + e);
+            }
+        });
+    }
+
+    /**
+     * Reads the alarm state from the shared storage and builds the states shown while alarms are or will be set
+     */
+    private void loadAlarmState() {
+        Application application = getApplication();
+        if (noAlarmUiState == null) {
+            String setAlarmButtonText = application.getString(R.string.set_alarm_button_text);
+            String noAlarmsHaveBeenSetText = application.getString(R.string.no_alarm_set_text);
+            noAlarmUiState = new MainUiState(setAlarmButtonText, true, noAlarmsHaveBeenSetText, true);
+            // All values are zero, the button is disabled
+            noDurationUiState = new MainUiState(setAlarmButtonText, false, noAlarmsHaveBeenSetText, true);
+        }
+        String cancelAlarmButtonText = application.getString(R.string.cancel_alarm_button_text);
+
+        AlarmStatus status = alarmPreferencesUtil.get().getStatus();
+        switch (status.getKind()) {
+            case ALARM_SET:
+                // An alarm is already set, display when the next alarm goes off
+                long epochTime = status.getNextAlarm().getEpochTriggerTimeMillis();
+                String ringTimeString = TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(epochTime);
+                String ringTimeFullString = application.getString(R.string.alarm_is_set_format_text, ringTimeString);
+                alarmUiState = new MainUiState(cancelAlarmButtonText, true, ringTimeFullString, false);
+                break;
+            case ALARM_WILL_BE_SET:
+                // Future alarm is set, display how long after turning off the screen the alarm will ring
+                String timeString = TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(status.getFutureAlarmTime());
+                String alarmWillBeSetText = application.getString(R.string.alarm_will_be_set_format_text, timeString);
+                alarmUiState = new MainUiState(cancelAlarmButtonText, true, alarmWillBeSetText, false);
+                break;
+            default:
+                alarmUiState = null;
+                break;
+        }
+        alarmStateLoaded = true;
+    }
+
+    /**
+     * Publishes the state matching the memoized alarm state and number pickers, if it differs from the last one
+     */
+    private void publishState() {
+        if (!alarmStateLoaded) {
+            return;
+        }
+        MainUiState state;
+        if (alarmUiState != null) {
+            state = alarmUiState;
+        } else if (durationChosen) {
+            state = noAlarmUiState;
+        } else {
+            state = noDurationUiState;
+        }
+        if (!state.equals(lastPublishedState)) {
+            lastPublishedState = state;
+            uiState.postValue(state);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,55 @@
+package com.customsolutions.automaticalarmsetter.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.customsolutions.automaticalarmsetter.handler.AlarmHistoryRecorder;
+import com.customsolutions.automaticalarmsetter.handler.AlarmToggleHandler;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+
+/**
+ * Home-screen widget showing whether an alarm is armed and when it rings, with a button arming or cancelling it.
+ * Has no update period, the content is pushed by the AlarmWidgetUpdater when the alarm state changes
+ */
+public class AlarmWidgetProvider extends AppWidgetProvider {
+
+    public static final String ACTION_TOGGLE = "com.customsolutions.automaticalarmsetter.action.TOGGLE_ALARM";
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        PendingResult pendingResult = goAsync();
+        new Thread(() -> {
+            try {
+                AlarmWidgetUpdater.getInstance(context).update(appWidgetManager, appWidgetIds);
+            } finally {
+                pendingResult.finish();
+            }
+        }, "AlarmWidgetUpdate").start();
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!ACTION_TOGGLE.equals(intent.getAction())) {
+            super.onReceive(context, intent);
+            return;
+        }
+        Log.d("AlarmWidgetProvider", "Toggle tapped");
+        long tappedAtElapsedNanos = SystemClock.elapsedRealtimeNanos();
+        // Toggling reads the alarm state, keep it off the main thread
+        PendingResult pendingResult = goAsync();
+        new Thread(() -> {
+            try {
+                AlarmToggleHandler.getInstance(context).toggle(tappedAtElapsedNanos);
+            } finally {
+                // The process may be killed once the broadcast is finished, so the alarms and their history have to be written by then
+                AlarmPreferencesUtil.getInstance(context).flush();
+                AlarmHistoryRecorder.getInstance(context).flush();
+                pendingResult.finish();
+            }
+        }, "AlarmWidgetToggle").start();
+    }
+}
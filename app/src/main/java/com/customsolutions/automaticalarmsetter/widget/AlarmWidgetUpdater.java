@@ -0,0 +1,106 @@
+package com.customsolutions.automaticalarmsetter.widget;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+import com.customsolutions.automaticalarmsetter.AlarmSetterApplication;
+import com.customsolutions.automaticalarmsetter.R;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.model.AlarmWidgetContent;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+
+/**
+ * Singleton class pushing the content of the home-screen widgets.
+ * The widgets are never polled: they are updated when a new alarm state has been written, and only if what they show changes
+ */
+public class AlarmWidgetUpdater {
+
+    private final Context context;
+    private AlarmWidgetContent.Texts texts;
+    private AlarmWidgetContent lastContent; // Content of the last push, null if nothing was pushed yet
+
+    public AlarmWidgetUpdater(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Gets the application wide instance, created lazily by the AlarmSetterApplication
+     * @param context any context of the application
+     * @return the AlarmWidgetUpdater instance
+     */
+    public static AlarmWidgetUpdater getInstance(Context context) {
+        return AlarmSetterApplication.from(context).getAlarmWidgetUpdater();
+    }
+
+    /**
+     * Pushes the content of a new alarm state to the widgets if it differs from what they show.
+     * Called on the store's writer thread
+     * @param state snapshot that has been written
+     */
+    public void onStateChanged(AlarmState state) {
+        onStatusChanged(AlarmStatus.of(state));
+    }
+
+    /**
+     * Pushes the content of an alarm status to the widgets if it differs from what they show,
+     * e.g. because the timezone changed how its ring time is displayed
+     * @param status current status of the alarms
+     */
+    public synchronized void onStatusChanged(AlarmStatus status) {
+        AlarmWidgetContent content = AlarmWidgetContent.of(status, getTexts());
+        if (content.equals(lastContent)) {
+            return;
+        }
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, AlarmWidgetProvider.class));
+        if (appWidgetIds.length == 0) {
+            return;
+        }
+        push(appWidgetManager, appWidgetIds, content);
+    }
+
+    /**
+     * Pushes the current content to widgets, regardless of what was pushed before.
+     * Used when widgets are added or the launcher asks for their content
+     * @param appWidgetManager manager of the widgets
+     * @param appWidgetIds widgets to update
+     */
+    public synchronized void update(AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        AlarmStatus status = AlarmPreferencesUtil.getInstance(context).getStatus();
+        push(appWidgetManager, appWidgetIds, AlarmWidgetContent.of(status, getTexts()));
+    }
+
+    private void push(AppWidgetManager appWidgetManager, int[] appWidgetIds, AlarmWidgetContent content) {
+        Log.d("AlarmWidgetUpdater", String.format("Updating %d widgets", appWidgetIds.length));
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_alarm);
+        views.setTextViewText(R.id.widgetStatusText, content.getStatusText());
+        views.setTextViewText(R.id.widgetToggleButton, content.getButtonText());
+        views.setOnClickPendingIntent(R.id.widgetToggleButton, getTogglePendingIntent());
+        appWidgetManager.updateAppWidget(appWidgetIds, views);
+        lastContent = content;
+    }
+
+    private PendingIntent getTogglePendingIntent() {
+        Intent intent = new Intent(context, AlarmWidgetProvider.class);
+        intent.setAction(AlarmWidgetProvider.ACTION_TOGGLE);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private AlarmWidgetContent.Texts getTexts() {
+        if (texts == null) {
+            texts = new AlarmWidgetContent.Texts(
+                    context.getString(R.string.alarm_is_set_format_text),
+                    context.getString(R.string.alarm_will_be_set_format_text),
+                    context.getString(R.string.no_alarm_set_text),
+                    context.getString(R.string.set_alarm_button_text),
+                    context.getString(R.string.cancel_alarm_button_text));
+        }
+        return texts;
+    }
+}
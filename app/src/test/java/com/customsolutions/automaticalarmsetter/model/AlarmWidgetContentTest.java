@@ -0,0 +1,58 @@
+package com.customsolutions.automaticalarmsetter.model;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the content rendered by the home-screen widget
+ */
+public class AlarmWidgetContentTest {
+
+    private static final AlarmWidgetContent.Texts TEXTS = new AlarmWidgetContent.Texts(
+            "Rings at %s", "Rings %s after the screen is off", "No alarm", "Arm", "Cancel");
+
+    @Test
+    public void noAlarm_showsArmButton() {
+        AlarmWidgetContent content = AlarmWidgetContent.of(AlarmStatus.NO_ALARM, TEXTS);
+        assertFalse(content.isArmed());
+        assertEquals("No alarm", content.getStatusText());
+        assertEquals("Arm", content.getButtonText());
+    }
+
+    @Test
+    public void alarmSet_showsNextRingTime() {
+        long next = 1_700_000_000_000L;
+        AlarmState state = AlarmState.of(Arrays.asList(new Alarm(1, next + 60_000), new Alarm(2, next)), Collections.<Integer>emptyList());
+        AlarmWidgetContent content = AlarmWidgetContent.of(AlarmStatus.of(state), TEXTS);
+        assertTrue(content.isArmed());
+        assertEquals("Rings at " + TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(next), content.getStatusText());
+        assertEquals("Cancel", content.getButtonText());
+    }
+
+    @Test
+    public void alarmWillBeSet_showsDuration() {
+        AlarmState state = AlarmState.of(Collections.<Alarm>emptyList(), Collections.singletonList(90 * 60 * 1000));
+        AlarmWidgetContent content = AlarmWidgetContent.of(AlarmStatus.of(state), TEXTS);
+        assertTrue(content.isArmed());
+        assertEquals("Rings 1 hour and 30 minutes after the screen is off", content.getStatusText());
+        assertEquals("Cancel", content.getButtonText());
+    }
+
+    @Test
+    public void sameStatus_rendersEqualContent() {
+        // Equal content is what keeps the updater from pushing again
+        AlarmState state = AlarmState.of(Collections.<Alarm>emptyList(), Collections.singletonList(60_000));
+        AlarmState sameStatus = state.withAlarms(Collections.<Alarm>emptyList());
+        assertEquals(AlarmWidgetContent.of(AlarmStatus.of(state), TEXTS), AlarmWidgetContent.of(AlarmStatus.of(sameStatus), TEXTS));
+        assertNotEquals(AlarmWidgetContent.of(AlarmStatus.of(state), TEXTS), AlarmWidgetContent.of(AlarmStatus.NO_ALARM, TEXTS));
+    }
+}
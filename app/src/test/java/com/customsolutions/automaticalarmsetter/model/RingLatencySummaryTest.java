@@ -0,0 +1,51 @@
+package com.customsolutions.automaticalarmsetter.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the percentile calculation of the ring latency summary
+ */
+public class RingLatencySummaryTest {
+
+    private static RingLatencyRecord recordWithLateness(long latenessMillis) {
+        long scheduled = 1_700_000_000_000L;
+        return new RingLatencyRecord(scheduled, scheduled, scheduled, scheduled + latenessMillis);
+    }
+
+    @Test
+    public void emptyRecords_summaryIsZero() {
+        RingLatencySummary summary = RingLatencySummary.fromRecords(new ArrayList<>());
+        assertEquals(0, summary.getCount());
+        assertEquals(0, summary.getP50LatenessMillis());
+        assertEquals(0, summary.getP99LatenessMillis());
+    }
+
+    @Test
+    public void percentiles_useNearestRank() {
+        List<RingLatencyRecord> records = new ArrayList<>();
+        // Add in reverse so the summary has to sort
+        for (int lateness = 100; lateness >= 1; lateness--) {
+            records.add(recordWithLateness(lateness));
+        }
+        RingLatencySummary summary = RingLatencySummary.fromRecords(records);
+        assertEquals(100, summary.getCount());
+        assertEquals(50, summary.getP50LatenessMillis());
+        assertEquals(95, summary.getP95LatenessMillis());
+        assertEquals(99, summary.getP99LatenessMillis());
+        assertEquals(100, summary.getMaxLatenessMillis());
+    }
+
+    @Test
+    public void singleRecord_isEveryPercentile() {
+        List<RingLatencyRecord> records = new ArrayList<>();
+        records.add(recordWithLateness(42));
+        RingLatencySummary summary = RingLatencySummary.fromRecords(records);
+        assertEquals(42, summary.getP50LatenessMillis());
+        assertEquals(42, summary.getP99LatenessMillis());
+    }
+}
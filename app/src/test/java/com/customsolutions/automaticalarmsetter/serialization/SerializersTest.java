@@ -0,0 +1,115 @@
+package com.customsolutions.automaticalarmsetter.serialization;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmSummary;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the hand-written serializers round-trip and stay compatible with the data
+ * previously stored by Gson's reflection based serialization
+ */
+public class SerializersTest {
+
+    private static final JsonSerializer<List<Alarm>> ALARMS_SERIALIZER = new ListSerializer<>(AlarmSerializer.INSTANCE);
+    private static final JsonSerializer<List<Integer>> INTEGERS_SERIALIZER = new ListSerializer<>(IntegerSerializer.INSTANCE);
+
+    private static List<Alarm> sampleAlarms() {
+        return Arrays.asList(new Alarm(1, 1_700_000_000_000L), new Alarm(99999, Long.MAX_VALUE), new Alarm(42, 0));
+    }
+
+    @Test
+    public void alarms_roundTrip() {
+        List<Alarm> alarms = sampleAlarms();
+        assertEquals(alarms, ALARMS_SERIALIZER.fromJson(ALARMS_SERIALIZER.toJson(alarms)));
+    }
+
+    @Test
+    public void alarms_matchExistingStoredFormat() {
+        String stored = "[{\"requestCode\":5817,\"epochTriggerTimeMillis\":1707000000000}]";
+        List<Alarm> alarms = ALARMS_SERIALIZER.fromJson(stored);
+        assertEquals(1, alarms.size());
+        assertEquals(5817, alarms.get(0).getRequestCode());
+        assertEquals(1707000000000L, alarms.get(0).getEpochTriggerTimeMillis());
+        assertEquals(stored, ALARMS_SERIALIZER.toJson(alarms));
+    }
+
+    @Test
+    public void alarms_matchGsonReflectionOutput() {
+        List<Alarm> alarms = sampleAlarms();
+        // Wall clock alarms are written without the elapsed trigger time, as they were before it existed
+        String reflectionJson = new Gson().toJson(alarms).replace(",\"elapsedTriggerTimeMillis\":0", "");
+        assertEquals(reflectionJson, ALARMS_SERIALIZER.toJson(alarms));
+
+        List<Alarm> reflectionAlarms = new Gson().fromJson(ALARMS_SERIALIZER.toJson(alarms), new TypeToken<List<Alarm>>() {}.getType());
+        assertEquals(alarms, reflectionAlarms);
+    }
+
+    @Test
+    public void alarms_elapsedTriggerTimeRoundTrips() {
+        List<Alarm> alarms = Arrays.asList(new Alarm(3, 1_700_000_000_000L, 3_600_000L), new Alarm(4, 1_700_000_000_000L));
+        String json = ALARMS_SERIALIZER.toJson(alarms);
+        assertEquals("[{\"requestCode\":3,\"epochTriggerTimeMillis\":1700000000000,\"elapsedTriggerTimeMillis\":3600000},"
+                + "{\"requestCode\":4,\"epochTriggerTimeMillis\":1700000000000}]", json);
+        assertEquals(alarms, ALARMS_SERIALIZER.fromJson(json));
+    }
+
+    @Test
+    public void alarms_unknownFieldsAreSkipped() {
+        String stored = "[{\"requestCode\":7,\"label\":{\"a\":[1,2]},\"epochTriggerTimeMillis\":8}]";
+        assertEquals(Arrays.asList(new Alarm(7, 8)), ALARMS_SERIALIZER.fromJson(stored));
+    }
+
+    @Test
+    public void futureAlarmTimes_matchGsonReflectionOutput() {
+        List<Integer> times = Arrays.asList(600000, 1000, Integer.MAX_VALUE);
+        String json = INTEGERS_SERIALIZER.toJson(times);
+        assertEquals(new Gson().toJson(times), json);
+        assertEquals(times, INTEGERS_SERIALIZER.fromJson(json));
+        assertEquals(new ArrayList<Integer>(), INTEGERS_SERIALIZER.fromJson("[]"));
+    }
+
+    @Test
+    public void alarmPlan_roundTripAndMissingLists() {
+        AlarmPlan plan = new AlarmPlan(Arrays.asList(60000, 1000), Collections.singletonList(1700000000000L));
+        String json = AlarmPlanSerializer.INSTANCE.toJson(plan);
+        assertEquals("{\"futureAlarmTimes\":[60000,1000],\"epochTriggerTimesMillis\":[1700000000000]}", json);
+
+        AlarmPlan readPlan = AlarmPlanSerializer.INSTANCE.fromJson(json);
+        assertEquals(plan.getFutureAlarmTimes(), readPlan.getFutureAlarmTimes());
+        assertEquals(plan.getEpochTriggerTimesMillis(), readPlan.getEpochTriggerTimesMillis());
+        assertTrue(AlarmPlanSerializer.INSTANCE.fromJson("{\"other\":[1]}").isEmpty());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void alarmPlan_negativeDurationIsRejected() {
+        AlarmPlanSerializer.INSTANCE.fromJson("{\"futureAlarmTimes\":[-1]}");
+    }
+
+    @Test
+    public void alarmSummary_roundTrip() {
+        AlarmSummary summary = new AlarmSummary(2, new Alarm(7, 8), 1, 60000);
+        assertEquals(summary, AlarmSummarySerializer.INSTANCE.fromJson(AlarmSummarySerializer.INSTANCE.toJson(summary)));
+
+        AlarmSummary noAlarms = new AlarmSummary(0, null, 1, 60000);
+        String json = AlarmSummarySerializer.INSTANCE.toJson(noAlarms);
+        assertFalse(json.contains("nextAlarm"));
+        assertEquals(noAlarms, AlarmSummarySerializer.INSTANCE.fromJson(json));
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void malformedJson_throwsJsonParseException() {
+        ALARMS_SERIALIZER.fromJson("[{\"requestCode\":");
+    }
+}
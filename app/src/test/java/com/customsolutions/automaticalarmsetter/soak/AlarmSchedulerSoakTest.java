@@ -0,0 +1,64 @@
+package com.customsolutions.automaticalarmsetter.soak;
+
+import com.customsolutions.automaticalarmsetter.core.AlarmScheduler;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Soak test of the scheduling flows with thousands of set alarms.
+ * The number of events can be raised for longer runs with -Dsoak.operations=N. Print the report with -Dbudget.verbose=true.
+ * Runs under Robolectric, as the real components log with android.util.Log
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AlarmSchedulerSoakTest {
+
+    private static final int OPERATIONS = Integer.getInteger("soak.operations", 20000);
+    private static final int TARGET_ALARMS = Integer.getInteger("soak.alarms", 2000);
+
+    @Test
+    public void soak_alarmManagerAndStorageStayInLineWithState() throws Exception {
+        SoakHarness harness = new SoakHarness(OPERATIONS, TARGET_ALARMS, 42);
+
+        SoakReport report = harness.run();
+        if (Boolean.getBoolean("budget.verbose")) {
+            System.out.println("AlarmSchedulerSoakTest: " + report + " updates=" + harness.getUpdates());
+        }
+
+        AlarmState state = harness.alarmPreferencesUtil.getState();
+        List<Alarm> alarmsInRingOrder = new ArrayList<>(state.getAlarms());
+        alarmsInRingOrder.sort(Comparator.comparingLong(Alarm::getEpochTriggerTimeMillis).thenComparingInt(Alarm::getRequestCode));
+        Map<Integer, Alarm> firstAlarms = new HashMap<>();
+        for (Alarm alarm : alarmsInRingOrder.subList(0, Math.min(alarmsInRingOrder.size(), AlarmScheduler.MAX_ARMED_ALARMS))) {
+            firstAlarms.put(alarm.getRequestCode(), alarm);
+        }
+        // The alarms that ring first are registered and nothing else is. The set alarms went past the AlarmManager's limit,
+        // which the fake enforces, while the registrations stayed below it
+        assertEquals(firstAlarms, harness.alarmManager.getRegisteredAlarms());
+        assertEquals(AlarmScheduler.MAX_ARMED_ALARMS, harness.alarmManager.getPeakRegisteredAlarms());
+        // The last write holds the final state, as read back by a new process
+        AlarmPreferencesUtil reloaded = new AlarmPreferencesUtil(harness.preferences, new MetricsRegistry(), Runnable::run);
+        assertEquals(state.getSummary(), reloaded.getSummary());
+        assertEquals(state.getAlarms(), reloaded.getState().getAlarms());
+        assertFalse(state.hasFutureAlarmTimes());
+        assertEquals(OPERATIONS, report.operations);
+        // The updates of an event are coalesced into at most one commit, while a screen toggle alone makes two to four updates
+        assertTrue("Commits: " + report.commits, report.commits <= OPERATIONS);
+        // The dumped write count is one per commit, not one per value written
+        assertEquals(report.commits, harness.metrics.counter("preferences.writes").get());
+        assertTrue("Commits: " + report.commits + ", updates: " + harness.getUpdates(), report.commits * 3 < harness.getUpdates() * 2);
+    }
+}
@@ -0,0 +1,74 @@
+package com.customsolutions.automaticalarmsetter.soak;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.handler.AlarmManagerClient;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stand-in for the AlarmManager, called by the real AlarmManagerWakeupBackend, which counts the binder calls.
+ * Keeps the registered alarm clocks and sound preparations by request code, like the AlarmManager keeps pending intents,
+ * and refuses registrations over the AlarmManager's limit like the platform does
+ */
+class FakeAlarmManager implements AlarmManagerClient {
+
+    // Registrations the AlarmManager allows an app
+    static final int MAX_REGISTRATIONS = 500;
+    private final Map<Integer, Alarm> alarmClocks = new HashMap<>();
+    private final Map<Integer, Long> prewarms = new HashMap<>();
+    private int peakAlarmClocks;
+
+    @Override
+    public boolean canScheduleExactAlarms() {
+        return true;
+    }
+
+    @Override
+    public synchronized void setAlarmClock(Alarm alarm) {
+        checkLimit(alarmClocks.containsKey(alarm.getRequestCode()));
+        alarmClocks.put(alarm.getRequestCode(), alarm);
+        peakAlarmClocks = Math.max(peakAlarmClocks, alarmClocks.size());
+    }
+
+    @Override
+    public synchronized void setPrewarm(Alarm alarm, long prewarmTimeMillis) {
+        checkLimit(prewarms.containsKey(alarm.getRequestCode()));
+        prewarms.put(alarm.getRequestCode(), prewarmTimeMillis);
+    }
+
+    @Override
+    public synchronized void cancelAlarmClock(Alarm alarm) {
+        alarmClocks.remove(alarm.getRequestCode());
+    }
+
+    @Override
+    public synchronized void cancelPrewarm(Alarm alarm) {
+        prewarms.remove(alarm.getRequestCode());
+    }
+
+    private void checkLimit(boolean replaced) {
+        if (!replaced && alarmClocks.size() + prewarms.size() >= MAX_REGISTRATIONS) {
+            throw new IllegalStateException("Maximum limit of concurrent alarms " + MAX_REGISTRATIONS + " reached");
+        }
+    }
+
+    /**
+     * Fires the registered alarm with the given request code, like the AlarmManager drops a pending intent once it is sent.
+     * Its sound preparation went off before it
+     * @param requestCode request code of the alarm
+     * @return The fired alarm, null if no alarm with the request code is registered
+     */
+    synchronized Alarm fire(int requestCode) {
+        prewarms.remove(requestCode);
+        return alarmClocks.remove(requestCode);
+    }
+
+    synchronized Map<Integer, Alarm> getRegisteredAlarms() {
+        return new HashMap<>(alarmClocks);
+    }
+
+    synchronized int getPeakRegisteredAlarms() {
+        return peakAlarmClocks;
+    }
+}
@@ -0,0 +1,40 @@
+package com.customsolutions.automaticalarmsetter.soak;
+
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+
+import java.util.Locale;
+
+/**
+ * Stand-in for the foreground notification. Builds the text the ForegroundNotificationTextUtil would post for a status
+ */
+class FakeNotificationManager {
+
+    private String lastText;
+    private long posts;
+
+    /**
+     * Posts the notification for a status. Nothing is posted if there is no alarm, like in the ForegroundNotificationTextUtil
+     * @param status status to post
+     */
+    synchronized void post(AlarmStatus status) {
+        switch (status.getKind()) {
+            case ALARM_SET:
+                lastText = String.format(Locale.ROOT, "Alarm is set to ring at %d", status.getNextAlarm().getEpochTriggerTimeMillis());
+                break;
+            case ALARM_WILL_BE_SET:
+                lastText = String.format(Locale.ROOT, "Alarm will ring %d ms after the screen is turned off", status.getFutureAlarmTime());
+                break;
+            default:
+                return;
+        }
+        posts++;
+    }
+
+    synchronized String getLastText() {
+        return lastText;
+    }
+
+    synchronized long getPosts() {
+        return posts;
+    }
+}
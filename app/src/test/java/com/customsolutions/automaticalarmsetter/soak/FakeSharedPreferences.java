@@ -0,0 +1,187 @@
+package com.customsolutions.automaticalarmsetter.soak;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stand-in for a preference file, handed to the real SharedPreferencesUtil classes.
+ * Keeps the values in a map, applies an editor's changes at once like the platform does, and counts the reads,
+ * the commits and the bytes written
+ */
+class FakeSharedPreferences implements SharedPreferences {
+
+    private final Map<String, Object> values = new HashMap<>();
+    private long reads;
+    private long commits;
+    private long bytesWritten;
+
+    private synchronized Object read(String key) {
+        reads++;
+        return values.get(key);
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        reads++;
+        return new HashMap<>(values);
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        Object value = read(key);
+        return value != null ? (String) value : defValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = read(key);
+        return value != null ? (Set<String>) value : defValues;
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        Object value = read(key);
+        return value != null ? (Integer) value : defValue;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        Object value = read(key);
+        return value != null ? (Long) value : defValue;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        Object value = read(key);
+        return value != null ? (Float) value : defValue;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object value = read(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return read(key) != null;
+    }
+
+    @Override
+    public Editor edit() {
+        return new FakeEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Applies an editor's changes in one commit
+     * @param clear whether all values are removed first
+     * @param changes values to put, null for the ones to remove
+     */
+    private synchronized void commit(boolean clear, Map<String, Object> changes) {
+        if (clear) {
+            values.clear();
+        }
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                values.remove(change.getKey());
+                continue;
+            }
+            values.put(change.getKey(), change.getValue());
+            if (change.getValue() instanceof String) {
+                // The values are stored as UTF-16 strings in memory but the JSON is ASCII on disk, count the on-disk size
+                bytesWritten += ((String) change.getValue()).length();
+            }
+        }
+        commits++;
+    }
+
+    synchronized long getReads() {
+        return reads;
+    }
+
+    synchronized long getCommits() {
+        return commits;
+    }
+
+    synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private class FakeEditor implements Editor {
+
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+
+        private Editor put(String key, Object value) {
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putString(String key, String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            return put(key, values != null ? new HashSet<>(values) : null);
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor remove(String key) {
+            return put(key, null);
+        }
+
+        @Override
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            FakeSharedPreferences.this.commit(clear, changes);
+            return true;
+        }
+
+        @Override
+        public void apply() {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.customsolutions.automaticalarmsetter.soak;
+
+import com.customsolutions.automaticalarmsetter.core.metrics.Counter;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.port.AlarmEventListener;
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmManagerWakeupBackend;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the hot paths of the real AlarmPreferencesUtil, AlarmHandler and AlarmManagerWakeupBackend against the soak fakes and fails if an
+ * operation allocates, reads, writes or calls into the AlarmManager more than its budget. Reads and writes are counted at the SharedPreferences,
+ * the AlarmManager calls by the backend under 'alarmManager.binderCalls'.
+ * Allocations are measured per thread, so they are only checked on JVMs that support it.
+ * Budgets are about twice the measured values. Print the measured values with -Dbudget.verbose=true.
+ * Runs under Robolectric, as the real components log with android.util.Log
+ */
+@RunWith(RobolectricTestRunner.class)
+public class HotPathBudgetTest {
+
+    private static final int WARMUP_OPERATIONS = 5_000;
+    private static final int MEASURED_OPERATIONS = 2_000;
+    private static final int SET_ALARMS = 10;
+
+    /**
+     * Resources used by one operation, averaged over the measured runs
+     */
+    private static class Usage {
+        double allocatedBytes;
+        double diskReads;
+        double diskWrites;
+        double binderCalls;
+
+        @Override
+        public String toString() {
+            return String.format("%.0f bytes allocated, %.2f disk reads, %.2f disk writes, %.2f binder calls", allocatedBytes, diskReads, diskWrites, binderCalls);
+        }
+    }
+
+    private long now = 1_700_000_000_000L;
+    private FakeAlarmManager alarmManager;
+    private FakeSharedPreferences preferences;
+    private Counter binderCalls;
+    private AlarmPreferencesUtil alarmPreferencesUtil;
+    private AlarmHandler alarmHandler;
+
+    @Before
+    public void setUp() {
+        alarmManager = new FakeAlarmManager();
+        preferences = new FakeSharedPreferences();
+        MetricsRegistry metrics = new MetricsRegistry();
+        binderCalls = metrics.counter("alarmManager.binderCalls");
+        // Writes run on the calling thread, so they are counted and allocate on the measured thread
+        alarmPreferencesUtil = new AlarmPreferencesUtil(preferences, metrics, Runnable::run);
+        Clock clock = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+
+            @Override
+            public long elapsedRealtimeMillis() {
+                return now - 1_600_000_000_000L;
+            }
+
+            @Override
+            public int bootCount() {
+                return 1;
+            }
+        };
+        alarmHandler = new AlarmHandler(alarmPreferencesUtil, new AlarmManagerWakeupBackend(alarmManager, clock, () -> {}, metrics),
+                clock, metrics, AlarmEventListener.NONE);
+        for (int i = 0; i < SET_ALARMS; i++) {
+            // A day ahead, so they never become stale while the paths are measured
+            alarmHandler.scheduleAlarmAfterTimeMillis(86_400_000 + i * 60_000);
+        }
+    }
+
+    /**
+     * Creates the AlarmPreferencesUtil of a new process, which has not read anything yet
+     * @return the AlarmPreferencesUtil
+     */
+    private AlarmPreferencesUtil coldAlarmPreferencesUtil() {
+        return new AlarmPreferencesUtil(preferences, new MetricsRegistry(), Runnable::run);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threadMXBean;
+        return counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled() ? counter : null;
+    }
+
+    /**
+     * Warms an operation up, then measures it
+     * @param name name printed in verbose mode
+     * @param operation operation to measure
+     * @return average usage of one operation
+     */
+    private Usage measure(String name, Runnable operation) {
+        for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+            operation.run();
+        }
+        com.sun.management.ThreadMXBean allocationCounter = allocationCounter();
+        long threadId = Thread.currentThread().getId();
+        long readsBefore = preferences.getReads();
+        long writesBefore = preferences.getCommits();
+        long binderCallsBefore = binderCalls.get();
+        long allocatedBefore = allocationCounter != null ? allocationCounter.getThreadAllocatedBytes(threadId) : 0;
+        for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+            operation.run();
+        }
+        Usage usage = new Usage();
+        usage.allocatedBytes = allocationCounter != null
+                ? (double) (allocationCounter.getThreadAllocatedBytes(threadId) - allocatedBefore) / MEASURED_OPERATIONS : Double.NaN;
+        usage.diskReads = (double) (preferences.getReads() - readsBefore) / MEASURED_OPERATIONS;
+        usage.diskWrites = (double) (preferences.getCommits() - writesBefore) / MEASURED_OPERATIONS;
+        usage.binderCalls = (double) (binderCalls.get() - binderCallsBefore) / MEASURED_OPERATIONS;
+        if (Boolean.getBoolean("budget.verbose")) {
+            System.out.println(name + ": " + usage);
+        }
+        return usage;
+    }
+
+    private static void assertBudget(Usage usage, long maxAllocatedBytes, double maxDiskReads, double maxDiskWrites, double maxBinderCalls) {
+        assertTrue("Disk reads over budget: " + usage, usage.diskReads <= maxDiskReads);
+        assertTrue("Disk writes over budget: " + usage, usage.diskWrites <= maxDiskWrites);
+        assertTrue("Binder calls over budget: " + usage, usage.binderCalls <= maxBinderCalls);
+        if (!Double.isNaN(usage.allocatedBytes)) {
+            assertTrue("Allocations over budget: " + usage, usage.allocatedBytes <= maxAllocatedBytes);
+        }
+    }
+
+    @Test
+    public void screenOff_setsFutureAlarmWithOneWrite() {
+        // MainActivity adds the duration, then ScreenReceiver.onReceive compacts, sets the alarm and updates the notification
+        Usage usage = measure("screenOff", () -> {
+            now += 1000;
+            alarmPreferencesUtil.addFutureAlarmTime(60_000);
+            List<Alarm> alarms = alarmHandler.onScreenOff();
+            alarmHandler.cancelAlarm(alarms.get(0));
+        });
+        // Adding the time, scheduling and cancelling are three writes, each serializing all set alarms.
+        // Arming checks the permission, sets the alarm clock and its sound preparation, cancelling removes both
+        assertBudget(usage, 56 * 1024, 0, 3, 5);
+    }
+
+    @Test
+    public void ringActivity_snoozeAndStop() {
+        // AlarmReceiver records the alarm, RingActivity snoozes it, it rings again and is stopped, then the next alarm is set
+        Usage usage = measure("ring", () -> {
+            now += 1000;
+            int requestCode = alarmPreferencesUtil.getState().getAlarms().get(0).getRequestCode();
+            Alarm snoozedAlarm = alarmHandler.snoozeRingingAlarm(requestCode, 600_000);
+            alarmManager.fire(snoozedAlarm.getRequestCode());
+            alarmHandler.onAlarmFired(requestCode, snoozedAlarm.getEpochTriggerTimeMillis(), now);
+            assertTrue(alarmHandler.stopRingingAlarm(requestCode));
+            alarmHandler.scheduleAlarmAfterTimeMillis(3_600_000);
+        });
+        // Each write serializes all set alarms. Snoozing and setting the next alarm arm one alarm each, the stopped alarm already went off
+        assertBudget(usage, 48 * 1024, 0, 3, 6);
+    }
+
+    @Test
+    public void statusQueries_doNoIoAndDoNotAllocate() {
+        // The main screen, widget and tile read the status from memory
+        Usage usage = measure("status", () -> {
+            assertNotNull(alarmHandler.getStatus().getNextAlarm());
+            alarmPreferencesUtil.futureAlarmWillBeSet();
+        });
+        assertBudget(usage, 64, 0, 0, 0);
+    }
+
+    @Test
+    public void coldStatus_readsOnlyTheSummary() {
+        // Widget, tile or receiver in a new process: only the summary is read, not the lists
+        List<AlarmStatus> statuses = new ArrayList<>();
+        Usage usage = measure("coldStatus", () -> {
+            statuses.clear();
+            statuses.add(coldAlarmPreferencesUtil().getStatus());
+        });
+        assertEquals(AlarmStatus.Kind.ALARM_SET, statuses.get(0).getKind());
+        assertBudget(usage, 8 * 1024, 1, 0, 0);
+    }
+
+    @Test
+    public void coldRead_readsOnce() {
+        // SharedPreferencesUtil: loading the stored alarms when the process starts
+        List<AlarmState> states = new ArrayList<>();
+        Usage usage = measure("coldRead", () -> {
+            states.clear();
+            states.add(coldAlarmPreferencesUtil().getState());
+        });
+        assertEquals(SET_ALARMS, states.get(0).getAlarms().size());
+        // The alarms, the future alarm times, their boot count and the summary they are checked against
+        assertBudget(usage, 24 * 1024, 4, 0, 0);
+    }
+
+    @Test
+    public void timeFormatting_staysWithinAllocationBudget() {
+        // TimeToStringFormatterUtil: formatting the ring time and the duration for the notification and the main screen
+        Usage usage = measure("formatting", () -> {
+            TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(now);
+            TimeToStringFormatterUtil.convertTimeInMillisToHumanreadableString(5_400_000);
+        });
+        assertBudget(usage, 8 * 1024, 0, 0, 0);
+    }
+
+    @Test
+    public void allocationCounter_isAvailableWhereSupported() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+        // Supported but disabled would silently skip every allocation budget
+        assertNotNull("Allocations are not measured", allocationCounter());
+    }
+}
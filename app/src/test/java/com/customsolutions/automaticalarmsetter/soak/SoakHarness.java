@@ -0,0 +1,174 @@
+package com.customsolutions.automaticalarmsetter.soak;
+
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.port.AlarmEventListener;
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+import com.customsolutions.automaticalarmsetter.handler.AlarmHandler;
+import com.customsolutions.automaticalarmsetter.handler.AlarmManagerWakeupBackend;
+import com.customsolutions.automaticalarmsetter.util.AlarmPreferencesUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the real AlarmPreferencesUtil, AlarmHandler and AlarmManagerWakeupBackend through the same sequences of calls the app's
+ * components make, with fakes of the shared preferences, the AlarmManager and the notification underneath.
+ * A virtual clock moves forward a few hundred milliseconds per operation, so the run is independent of the wall clock.
+ * Writes are queued and run between two events, like the writer thread catching up while the app waits for the next event
+ */
+class SoakHarness {
+
+    static final long STEP_MILLIS = 300; // Time between two user or system events
+    private static final int MAX_FUTURE_ALARM_TIME = 8 * 3600 * 1000;
+    private static final int SNOOZE_MILLIS = 10 * 60 * 1000;
+
+    private final int operations;
+    private final int targetAlarms;
+    private final Random random;
+    private static final long START_TIME_MILLIS = 1_700_000_000_000L;
+    private final AtomicLong clock = new AtomicLong(START_TIME_MILLIS);
+    final FakeAlarmManager alarmManager = new FakeAlarmManager();
+    final FakeSharedPreferences preferences = new FakeSharedPreferences();
+    final FakeNotificationManager notificationManager = new FakeNotificationManager();
+    private final Queue<Runnable> pendingWrites = new ArrayDeque<>();
+    final AlarmPreferencesUtil alarmPreferencesUtil;
+    final AlarmHandler alarmHandler;
+    final MetricsRegistry metrics = new MetricsRegistry();
+    private long updates; // Calls that change the alarms, each of which would be a write without coalescing
+
+    /**
+     * @param operations number of events to run
+     * @param targetAlarms number of alarms around which the number of set alarms is kept
+     * @param seed seed of the random event sequence
+     */
+    SoakHarness(int operations, int targetAlarms, long seed) {
+        this.operations = operations;
+        this.targetAlarms = targetAlarms;
+        this.random = new Random(seed);
+        Executor writer = pendingWrites::add;
+        alarmPreferencesUtil = new AlarmPreferencesUtil(preferences, metrics, writer);
+        Clock virtualClock = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return clock.get();
+            }
+
+            @Override
+            public long elapsedRealtimeMillis() {
+                // The run starts right after boot
+                return clock.get() - START_TIME_MILLIS + 1;
+            }
+
+            @Override
+            public int bootCount() {
+                return 1;
+            }
+        };
+        // The sound of an alarm ringing within the lead time is prepared right away, which the soak run skips
+        alarmHandler = new AlarmHandler(alarmPreferencesUtil, new AlarmManagerWakeupBackend(alarmManager, virtualClock, () -> {}, metrics),
+                virtualClock, metrics, AlarmEventListener.NONE);
+    }
+
+    /**
+     * Runs the events and the writes they queued
+     * @return report of the run
+     */
+    SoakReport run() {
+        long heapBefore = usedHeap();
+        long[] latenciesNanos = new long[operations];
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            clock.addAndGet(STEP_MILLIS);
+            long operationStart = System.nanoTime();
+            runEvent();
+            latenciesNanos[i] = System.nanoTime() - operationStart;
+            runPendingWrites();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long heapGrowth = usedHeap() - heapBefore;
+        return new SoakReport(latenciesNanos, elapsedNanos, preferences.getBytesWritten(), preferences.getCommits(),
+                metrics.counter("alarmManager.binderCalls").get(), notificationManager.getPosts(), heapGrowth);
+    }
+
+    private void runPendingWrites() {
+        Runnable write;
+        while ((write = pendingWrites.poll()) != null) {
+            write.run();
+        }
+    }
+
+    long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Runs a random event. Screen toggles set alarms until the target is reached, after which alarms ring more often
+     */
+    private void runEvent() {
+        int alarms = alarmPreferencesUtil.getSummary().getAlarmCount();
+        int roll = random.nextInt(100);
+        if (alarms < targetAlarms && roll < 60) {
+            screenToggle();
+        } else if (roll < 99 && alarms > 0) {
+            ring();
+        } else {
+            cancelAll();
+        }
+    }
+
+    /**
+     * The user picks durations in the MainActivity and the ScreenReceiver sets the alarms once the screen turns off
+     */
+    private void screenToggle() {
+        int futureAlarms = 1 + random.nextInt(3);
+        for (int i = 0; i < futureAlarms; i++) {
+            alarmPreferencesUtil.addFutureAlarmTime(1000 + random.nextInt(MAX_FUTURE_ALARM_TIME));
+            updates++;
+        }
+        alarmHandler.onScreenOff();
+        updates++;
+        notificationManager.post(alarmHandler.getStatus());
+    }
+
+    /**
+     * A registered alarm goes off, the AlarmReceiver records it and the user either snoozes or stops it in the RingActivity
+     */
+    private void ring() {
+        List<Integer> requestCodes = new ArrayList<>(alarmManager.getRegisteredAlarms().keySet());
+        if (requestCodes.isEmpty()) {
+            throw new IllegalStateException("Set alarms were not registered with the alarm manager");
+        }
+        Collections.sort(requestCodes);
+        Alarm alarm = alarmManager.fire(requestCodes.get(random.nextInt(requestCodes.size())));
+        alarmHandler.onAlarmFired(alarm.getRequestCode(), alarm.getEpochTriggerTimeMillis(), clock.get());
+        if (random.nextBoolean()) {
+            alarmHandler.snoozeRingingAlarm(alarm.getRequestCode(), SNOOZE_MILLIS);
+        } else {
+            alarmHandler.stopRingingAlarm(alarm.getRequestCode());
+        }
+        updates++;
+        notificationManager.post(alarmHandler.getStatus());
+    }
+
+    /**
+     * The user cancels all alarms from the MainActivity
+     */
+    private void cancelAll() {
+        alarmHandler.cancelAlarms();
+        updates++;
+        notificationManager.post(alarmHandler.getStatus());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
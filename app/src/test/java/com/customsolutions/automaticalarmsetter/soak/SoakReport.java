@@ -0,0 +1,63 @@
+package com.customsolutions.automaticalarmsetter.soak;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Results of a single soak run
+ */
+class SoakReport {
+
+    final int operations;
+    final long elapsedNanos;
+    final long p50LatencyNanos;
+    final long p99LatencyNanos;
+    final long maxLatencyNanos;
+    final long bytesPersisted;
+    final long commits;
+    final long binderCalls;
+    final long notificationPosts;
+    final long heapGrowthBytes;
+
+    SoakReport(long[] latenciesNanos, long elapsedNanos, long bytesPersisted, long commits, long binderCalls,
+               long notificationPosts, long heapGrowthBytes) {
+        long[] sortedLatencies = latenciesNanos.clone();
+        Arrays.sort(sortedLatencies);
+        this.operations = sortedLatencies.length;
+        this.elapsedNanos = elapsedNanos;
+        this.p50LatencyNanos = percentile(sortedLatencies, 50);
+        this.p99LatencyNanos = percentile(sortedLatencies, 99);
+        this.maxLatencyNanos = sortedLatencies.length > 0 ? sortedLatencies[sortedLatencies.length - 1] : 0;
+        this.bytesPersisted = bytesPersisted;
+        this.commits = commits;
+        this.binderCalls = binderCalls;
+        this.notificationPosts = notificationPosts;
+        this.heapGrowthBytes = heapGrowthBytes;
+    }
+
+    /**
+     * Gets a percentile of sorted values using the nearest-rank method
+     * @param sortedValues values sorted in ascending order
+     * @param percentile percentile to get (0-100)
+     * @return value at the percentile, 0 if there are no values
+     */
+    private static long percentile(long[] sortedValues, int percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+
+    double getThroughputPerSecond() {
+        return elapsedNanos > 0 ? operations * 1e9 / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "ops=%d throughput=%.0f ops/s p50=%dus p99=%dus max=%dus persisted=%d bytes in %d commits binderCalls=%d notifications=%d heapGrowth=%d KiB",
+                operations, getThroughputPerSecond(), p50LatencyNanos / 1000, p99LatencyNanos / 1000, maxLatencyNanos / 1000,
+                bytesPersisted, commits, binderCalls, notificationPosts, heapGrowthBytes / 1024);
+    }
+}
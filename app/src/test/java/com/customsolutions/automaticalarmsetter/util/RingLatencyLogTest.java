@@ -0,0 +1,96 @@
+package com.customsolutions.automaticalarmsetter.util;
+
+import com.customsolutions.automaticalarmsetter.model.RingLatencyRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the circular ring latency file
+ */
+public class RingLatencyLogTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("ring_latency", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static RingLatencyRecord record(long sequence) {
+        long scheduled = 1_700_000_000_000L + sequence * 60_000;
+        return new RingLatencyRecord(scheduled, scheduled + 10, scheduled + 200, scheduled + 300 + sequence);
+    }
+
+    private static void assertRecord(long sequence, RingLatencyRecord record) {
+        assertEquals(record(sequence).getScheduledTimeMillis(), record.getScheduledTimeMillis());
+        assertEquals(record(sequence).getReceivedTimeMillis(), record.getReceivedTimeMillis());
+        assertEquals(record(sequence).getActivityCreatedTimeMillis(), record.getActivityCreatedTimeMillis());
+        assertEquals(record(sequence).getRingtonePlayingTimeMillis(), record.getRingtonePlayingTimeMillis());
+    }
+
+    @Test
+    public void append_overwritesOldestOnceFullAndKeepsTheFileSize() throws IOException {
+        try (RingLatencyLog log = new RingLatencyLog(file, 10)) {
+            for (int i = 0; i < 25; i++) {
+                log.append(record(i));
+            }
+            assertEquals(10, log.size());
+            List<RingLatencyRecord> records = log.readAll();
+            assertEquals(10, records.size());
+            for (int i = 0; i < 10; i++) {
+                assertRecord(15 + i, records.get(i));
+            }
+        }
+        assertEquals(RingLatencyLog.HEADER_SIZE + 10 * RingLatencyLog.RECORD_SIZE, file.length());
+    }
+
+    @Test
+    public void reopen_keepsRecordsAndRestartsOnOtherCapacity() throws IOException {
+        try (RingLatencyLog log = new RingLatencyLog(file, 10)) {
+            log.append(record(0));
+            log.append(record(1));
+        }
+        try (RingLatencyLog log = new RingLatencyLog(file, 10)) {
+            List<RingLatencyRecord> records = log.readAll();
+            assertEquals(2, records.size());
+            assertRecord(1, records.get(1));
+        }
+        try (RingLatencyLog log = new RingLatencyLog(file, 20)) {
+            assertEquals(0, log.readAll().size());
+        }
+    }
+
+    @Test
+    public void readAll_skipsTornRecord() throws IOException {
+        try (RingLatencyLog log = new RingLatencyLog(file, 10)) {
+            for (int i = 0; i < 3; i++) {
+                log.append(record(i));
+            }
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(RingLatencyLog.HEADER_SIZE + RingLatencyLog.RECORD_SIZE + 3);
+            raw.write(0x7f);
+        }
+        try (RingLatencyLog log = new RingLatencyLog(file, 10)) {
+            List<RingLatencyRecord> records = log.readAll();
+            assertEquals(2, records.size());
+            assertRecord(0, records.get(0));
+            assertRecord(2, records.get(1));
+        }
+    }
+}
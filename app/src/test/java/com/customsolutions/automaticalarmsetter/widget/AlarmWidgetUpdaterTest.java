@@ -0,0 +1,81 @@
+package com.customsolutions.automaticalarmsetter.widget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.customsolutions.automaticalarmsetter.R;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.util.TimeToStringFormatterUtil;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Pushes alarm states to a widget and checks the views its RemoteViews are applied to
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AlarmWidgetUpdaterTest {
+
+    private static final int WIDGET_ID = 1;
+    private Context context;
+    private AppWidgetManager appWidgetManager;
+    private AlarmWidgetUpdater alarmWidgetUpdater;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        appWidgetManager = AppWidgetManager.getInstance(context);
+        appWidgetManager.bindAppWidgetIdIfAllowed(WIDGET_ID, new ComponentName(context, AlarmWidgetProvider.class));
+        alarmWidgetUpdater = new AlarmWidgetUpdater(context);
+    }
+
+    private String getText(int viewId) {
+        TextView view = shadowOf(appWidgetManager).getViewFor(WIDGET_ID).findViewById(viewId);
+        return view.getText().toString();
+    }
+
+    @Test
+    public void alarmSet_showsNextRingTimeAndCancelButton() {
+        long next = 1_700_000_000_000L;
+        alarmWidgetUpdater.onStateChanged(AlarmState.of(Arrays.asList(new Alarm(1, next + 60_000), new Alarm(2, next)),
+                Collections.<Integer>emptyList()));
+
+        assertEquals(context.getString(R.string.alarm_is_set_format_text, TimeToStringFormatterUtil.convertTimeMillisTo24HourTime(next)),
+                getText(R.id.widgetStatusText));
+        assertEquals(context.getString(R.string.cancel_alarm_button_text), getText(R.id.widgetToggleButton));
+    }
+
+    @Test
+    public void alarmWillBeSet_showsDuration() {
+        alarmWidgetUpdater.onStateChanged(AlarmState.of(Collections.<Alarm>emptyList(), Collections.singletonList(90 * 60 * 1000)));
+
+        assertEquals(context.getString(R.string.alarm_will_be_set_format_text, "1 hour and 30 minutes"), getText(R.id.widgetStatusText));
+        assertEquals(context.getString(R.string.cancel_alarm_button_text), getText(R.id.widgetToggleButton));
+    }
+
+    @Test
+    public void sameStatus_isNotPushedAgain() {
+        alarmWidgetUpdater.onStatusChanged(AlarmStatus.NO_ALARM);
+        View pushed = shadowOf(appWidgetManager).getViewFor(WIDGET_ID);
+        assertEquals(context.getString(R.string.no_alarm_set_text), getText(R.id.widgetStatusText));
+        assertEquals(context.getString(R.string.set_alarm_button_text), getText(R.id.widgetToggleButton));
+
+        alarmWidgetUpdater.onStatusChanged(AlarmStatus.NO_ALARM);
+        assertSame(pushed, shadowOf(appWidgetManager).getViewFor(WIDGET_ID));
+    }
+}
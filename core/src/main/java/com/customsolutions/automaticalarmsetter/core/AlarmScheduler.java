@@ -0,0 +1,447 @@
+package com.customsolutions.automaticalarmsetter.core;
+
+import com.customsolutions.automaticalarmsetter.core.history.AlarmHistoryEvent;
+import com.customsolutions.automaticalarmsetter.core.metrics.Counter;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmRemoval;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmSummary;
+import com.customsolutions.automaticalarmsetter.core.port.AlarmEventListener;
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+import com.customsolutions.automaticalarmsetter.core.port.WakeupBackend;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmStateStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Scheduling engine that decides which alarms are set and keeps the wakeup backend in line with the alarm state.
+ * Only the MAX_ARMED_ALARMS alarms that ring first are registered with the backend, the others are registered as earlier ones go away.
+ * Has no dependencies on Android, the platform is reached through the ports given to the constructor
+ */
+public class AlarmScheduler {
+
+    private static final int MAX_REQUEST_CODE = 100000; // Exclusive
+    // The AlarmManager allows an app 500 registrations and the backend registers each alarm and the preparation of its sound
+    public static final int MAX_ARMED_ALARMS = 200;
+    private static final Comparator<Alarm> RING_ORDER =
+            Comparator.comparingLong(Alarm::getEpochTriggerTimeMillis).thenComparingInt(Alarm::getRequestCode);
+    // How long after its trigger time an alarm is kept. The ringing alarm is always kept, this covers an alarm
+    // whose screen is still shown after its sound stopped, e.g. because another alarm was stopped first
+    static final long STALE_AFTER_MILLIS = 30 * 60 * 1000;
+    // Wall clock trigger times that differ less than this from the elapsed realtime ones are left alone
+    static final long TIME_CHANGE_TOLERANCE_MILLIS = 1000;
+    private final AlarmStateStore store;
+    private final Clock clock;
+    private final WakeupBackend wakeupBackend;
+    private final Random random;
+    private final AlarmEventListener eventListener;
+    private final Counter scheduledCounter;
+    private final Counter snoozedCounter;
+    private final Counter cancelledCounter;
+    private final Counter dismissedCounter;
+    private final Counter compactedCounter;
+
+    public AlarmScheduler(AlarmStateStore store, Clock clock, WakeupBackend wakeupBackend, MetricsRegistry metrics, AlarmEventListener eventListener) {
+        this(store, clock, wakeupBackend, metrics, new Random(), eventListener);
+    }
+
+    public AlarmScheduler(AlarmStateStore store, Clock clock, WakeupBackend wakeupBackend, Random random) {
+        this(store, clock, wakeupBackend, new MetricsRegistry(), random, AlarmEventListener.NONE);
+    }
+
+    public AlarmScheduler(AlarmStateStore store, Clock clock, WakeupBackend wakeupBackend, MetricsRegistry metrics, Random random) {
+        this(store, clock, wakeupBackend, metrics, random, AlarmEventListener.NONE);
+    }
+
+    public AlarmScheduler(AlarmStateStore store, Clock clock, WakeupBackend wakeupBackend, MetricsRegistry metrics, Random random, AlarmEventListener eventListener) {
+        this.store = store;
+        this.clock = clock;
+        this.wakeupBackend = wakeupBackend;
+        this.random = random;
+        this.eventListener = eventListener;
+        this.scheduledCounter = metrics.counter("alarms.scheduled");
+        this.snoozedCounter = metrics.counter("alarms.snoozed");
+        this.cancelledCounter = metrics.counter("alarms.cancelled");
+        this.dismissedCounter = metrics.counter("alarms.dismissed");
+        this.compactedCounter = metrics.counter("alarms.compacted");
+    }
+
+    public AlarmState getState() {
+        return store.get();
+    }
+
+    /**
+     * Gets what the user should be shown about the current alarms
+     * @return status of the current alarm state
+     */
+    public AlarmStatus getStatus() {
+        return AlarmStatus.of(store.get());
+    }
+
+    /**
+     * Sets a single alarm that will trigger after given amount of time
+     * @param triggerAfterMillis time after which to trigger the alarm in milliseconds
+     * @return The alarm that was set
+     */
+    public Alarm scheduleAfter(int triggerAfterMillis) {
+        AtomicReference<Alarm> createdAlarm = new AtomicReference<>();
+        AlarmState[] states = store.update(current -> {
+            AlarmState state = inCurrentBoot(current);
+            Alarm alarm = createAlarm(state, new HashSet<>(), triggerAfterMillis);
+            // The last call of the update is the one that was applied
+            createdAlarm.set(alarm);
+            return state.withAlarm(alarm);
+        });
+        Alarm alarm = createdAlarm.get();
+        updateRegistrations(states[0], states[1], Alarm.NO_REQUEST_CODE);
+        scheduledCounter.increment();
+        report(AlarmHistoryEvent.Type.SCHEDULED, alarm);
+        return alarm;
+    }
+
+    /**
+     * Turns all the future alarm times into alarms and sets them.
+     * Done atomically, so concurrent calls can't set the same future alarm time twice
+     * @return The alarms that were set
+     */
+    public List<Alarm> scheduleFutureAlarms() {
+        AtomicReference<List<Alarm>> createdAlarms = new AtomicReference<>();
+        AlarmState[] states = store.update(current -> {
+            AlarmState state = inCurrentBoot(current);
+            List<Alarm> alarms = new ArrayList<>();
+            Set<Integer> usedRequestCodes = new HashSet<>();
+            for (Integer alarmTime : state.getFutureAlarmTimes()) {
+                Alarm alarm = createAlarm(state, usedRequestCodes, alarmTime);
+                usedRequestCodes.add(alarm.getRequestCode());
+                alarms.add(alarm);
+            }
+            createdAlarms.set(alarms);
+            return state.withoutFutureAlarmTimes().withAlarms(alarms);
+        });
+
+        updateRegistrations(states[0], states[1], Alarm.NO_REQUEST_CODE);
+        List<Alarm> alarms = createdAlarms.get();
+        for (Alarm alarm : alarms) {
+            report(AlarmHistoryEvent.Type.SCHEDULED, alarm);
+        }
+        scheduledCounter.add(alarms.size());
+        return alarms;
+    }
+
+    /**
+     * Adds all the entries of a plan in a single update and sets its alarms in one pass.
+     * Trigger times that have already passed are dropped
+     * @param plan plan to apply
+     * @return The alarms that were set
+     */
+    public List<Alarm> applyPlan(AlarmPlan plan) {
+        return applyPlan(AlarmRemoval.NONE, plan);
+    }
+
+    /**
+     * Removes alarms and future alarm times, then adds all the entries of a plan, in a single update.
+     * The removed alarms are cancelled and the plan's alarms are set in one pass. Trigger times that have already passed are dropped
+     * @param removal alarms and future alarm times to remove first
+     * @param plan plan to apply
+     * @return The alarms that were set
+     */
+    public List<Alarm> applyPlan(AlarmRemoval removal, AlarmPlan plan) {
+        long now = clock.currentTimeMillis();
+        AtomicReference<List<Alarm>> createdAlarms = new AtomicReference<>();
+        AlarmState[] states = store.update(state -> {
+            List<Alarm> alarms = new ArrayList<>();
+            Set<Integer> usedRequestCodes = new HashSet<>();
+            for (Long triggerTime : plan.getEpochTriggerTimesMillis()) {
+                if (triggerTime <= now) {
+                    continue;
+                }
+                // Request codes of removed alarms are not reused, so cancelling them cannot cancel a new alarm
+                Alarm alarm = new Alarm(createRequestCode(state, usedRequestCodes), triggerTime);
+                usedRequestCodes.add(alarm.getRequestCode());
+                alarms.add(alarm);
+            }
+            createdAlarms.set(alarms);
+            return removal.apply(state).withFutureAlarmTimes(plan.getFutureAlarmTimes()).withAlarms(alarms);
+        });
+
+        updateRegistrations(states[0], states[1], Alarm.NO_REQUEST_CODE);
+        if (!removal.isEmpty()) {
+            int cancelledCount = 0;
+            for (Alarm alarm : states[0].getAlarms()) {
+                if (removal.removes(alarm)) {
+                    report(AlarmHistoryEvent.Type.CANCELLED, alarm);
+                    cancelledCount++;
+                }
+            }
+            cancelledCounter.add(cancelledCount);
+        }
+        List<Alarm> alarms = createdAlarms.get();
+        for (Alarm alarm : alarms) {
+            report(AlarmHistoryEvent.Type.SCHEDULED, alarm);
+        }
+        scheduledCounter.add(alarms.size());
+        return alarms;
+    }
+
+    /**
+     * Registers the stored alarms with the wakeup backend again, e.g. after a reboot or an app update cleared its registrations.
+     * Alarms whose trigger time passed are removed in a single update and the ones that ring first are armed in one pass.
+     * Elapsed trigger times measured in an earlier boot are rebased on the wall clock ones
+     * @return The alarms that were armed again
+     */
+    public List<Alarm> rearm() {
+        long now = clock.currentTimeMillis();
+        AlarmState state = store.updateAndGet(current -> inCurrentBoot(current).withoutAlarmsTriggeringBefore(now));
+        Alarm lastArmedAlarm = lastArmedAlarm(state);
+        List<Alarm> alarms = new ArrayList<>();
+        for (Alarm alarm : state.getAlarms()) {
+            if (isArmed(alarm, lastArmedAlarm)) {
+                wakeupBackend.arm(alarm);
+                alarms.add(alarm);
+            }
+        }
+        return alarms;
+    }
+
+    /**
+     * Recomputes the wall clock trigger times of the alarms set to ring after a duration, after the wall clock was changed.
+     * Only the alarms whose wall clock trigger time moved are updated and registered again, in a single update.
+     * Alarms set at a wall clock time keep it. If the elapsed trigger times were measured in an earlier boot, e.g. because the network
+     * set the clock right after a reboot before the alarms were re-armed, they are rebased on the wall clock ones instead
+     * @return The alarms whose trigger time was recomputed
+     */
+    public List<Alarm> onWallClockChanged() {
+        AtomicReference<List<Alarm>> shiftedAlarms = new AtomicReference<>();
+        AlarmState[] states = store.update(current -> {
+            AlarmState state = inCurrentBoot(current);
+            List<Alarm> alarms = new ArrayList<>();
+            for (Alarm alarm : state.getAlarms()) {
+                long epochTriggerTime = alarm.computeEpochTriggerTimeMillis(clock);
+                if (Math.abs(epochTriggerTime - alarm.getEpochTriggerTimeMillis()) >= TIME_CHANGE_TOLERANCE_MILLIS) {
+                    alarms.add(new Alarm(alarm.getRequestCode(), epochTriggerTime, alarm.getElapsedTriggerTimeMillis()));
+                }
+            }
+            shiftedAlarms.set(alarms);
+            return alarms.isEmpty() ? state : state.withAlarms(alarms);
+        });
+
+        // The registrations are replaced, as they have the same request codes
+        updateRegistrations(states[0], states[1], Alarm.NO_REQUEST_CODE);
+        return shiftedAlarms.get();
+    }
+
+    /**
+     * Snoozes an alarm by moving its trigger time in place.
+     * The alarm keeps its request code, so its registration is replaced instead of a new alarm being created.
+     * Nothing happens if the alarm was removed in the meantime, e.g. by cancelling all alarms from the tile
+     * @param alarm alarm to snooze
+     * @param snoozeMillis time after which the alarm should ring again in milliseconds
+     * @return The snoozed alarm, null if the alarm is no longer set
+     */
+    public Alarm snooze(Alarm alarm, int snoozeMillis) {
+        Alarm snoozedAlarm = new Alarm(alarm.getRequestCode(), clock.currentTimeMillis() + snoozeMillis, clock.elapsedRealtimeMillis() + snoozeMillis);
+        // Overwrites the alarm with the same request code in a single update, only if it is still set
+        AlarmState[] states = store.update(state ->
+                state.getAlarm(alarm.getRequestCode()) != null ? inCurrentBoot(state).withAlarm(snoozedAlarm) : state);
+        if (states[0].getAlarm(alarm.getRequestCode()) == null) {
+            return null;
+        }
+        // The alarm went off, so its registration is gone even though it is still in the state
+        updateRegistrations(states[0], states[1], alarm.getRequestCode());
+        snoozedCounter.increment();
+        report(AlarmHistoryEvent.Type.SNOOZED, snoozedAlarm);
+        return snoozedAlarm;
+    }
+
+    /**
+     * Cancels an alarm and removes it from the state
+     * @param alarm alarm to cancel
+     */
+    public void cancel(Alarm alarm) {
+        AlarmState[] states = store.update(state -> state.withoutAlarm(alarm.getRequestCode()));
+        updateRegistrations(states[0], states[1], Alarm.NO_REQUEST_CODE);
+        cancelledCounter.increment();
+        report(AlarmHistoryEvent.Type.CANCELLED, alarm);
+    }
+
+    /**
+     * Cancels all alarms and removes them from the state
+     * @return The alarms that were cancelled
+     */
+    public List<Alarm> cancelAll() {
+        AlarmState[] states = store.update(AlarmState::withoutAlarms);
+        updateRegistrations(states[0], states[1], Alarm.NO_REQUEST_CODE);
+        List<Alarm> alarms = states[0].getAlarms();
+        for (Alarm alarm : alarms) {
+            report(AlarmHistoryEvent.Type.CANCELLED, alarm);
+        }
+        cancelledCounter.add(alarms.size());
+        return alarms;
+    }
+
+    /**
+     * Removes an alarm that has gone off from the state. The wakeup backend already dropped it, the next alarm in line is armed instead
+     * @param requestCode request code of the alarm
+     * @return The removed alarm, null if no alarm with the request code was set
+     */
+    public Alarm dismiss(int requestCode) {
+        AlarmState[] states = store.update(state -> state.withoutAlarm(requestCode));
+        updateRegistrations(states[0], states[1], requestCode);
+        Alarm alarm = states[0].getAlarm(requestCode);
+        if (alarm != null) {
+            dismissedCounter.increment();
+            report(AlarmHistoryEvent.Type.STOPPED, alarm);
+        }
+        return alarm;
+    }
+
+    /**
+     * Checks whether compacting would remove anything, using only the alarm that rings first.
+     * Static, so callers can check before creating a scheduler, which needs the full alarm lists loaded
+     * @param summary summary of the alarms
+     * @param nowMillis current epoch time in milliseconds
+     * @return whether there are alarms to compact
+     */
+    public static boolean hasStaleAlarms(AlarmSummary summary, long nowMillis) {
+        return summary.hasAlarms()
+                && summary.getNextAlarm().getEpochTriggerTimeMillis() < nowMillis - STALE_AFTER_MILLIS;
+    }
+
+    /**
+     * Removes the alarms that went off but were never stopped or snoozed, e.g. because the process died while ringing.
+     * They are removed in a single update, their registrations are cancelled, freeing their request codes, and they are reported as missed
+     * @param ringingRequestCode request code of the alarm that is ringing, which is kept however long it rings, or Alarm.NO_REQUEST_CODE
+     * @return The removed alarms
+     */
+    public List<Alarm> compact(int ringingRequestCode) {
+        long staleBefore = clock.currentTimeMillis() - STALE_AFTER_MILLIS;
+        AlarmState[] states = store.update(state -> state.withoutAlarmsTriggeringBefore(staleBefore, ringingRequestCode));
+        updateRegistrations(states[0], states[1], Alarm.NO_REQUEST_CODE);
+        List<Alarm> staleAlarms = new ArrayList<>();
+        for (Alarm alarm : states[0].getAlarms()) {
+            if (alarm.getEpochTriggerTimeMillis() < staleBefore && alarm.getRequestCode() != ringingRequestCode) {
+                report(AlarmHistoryEvent.Type.MISSED, alarm);
+                staleAlarms.add(alarm);
+            }
+        }
+        compactedCounter.add(staleAlarms.size());
+        return staleAlarms;
+    }
+
+    /**
+     * Rebases the elapsed trigger times on the wall clock ones if they were measured in an earlier boot, in which the elapsed realtime clock
+     * counted from a different start. Done inside every update that uses or adds elapsed trigger times, so the result does not depend on
+     * whether the boot or a time change is handled first
+     * @param state snapshot to check
+     * @return snapshot whose elapsed trigger times belong to the current boot, or the given one if they already do
+     */
+    private AlarmState inCurrentBoot(AlarmState state) {
+        int bootCount = clock.bootCount();
+        if (state.getBootCount() == bootCount) {
+            return state;
+        }
+        long now = clock.currentTimeMillis();
+        long elapsedNow = clock.elapsedRealtimeMillis();
+        List<Alarm> rebasedAlarms = new ArrayList<>();
+        for (Alarm alarm : state.getAlarms()) {
+            if (alarm.hasElapsedTriggerTime()) {
+                long elapsedTriggerTime = elapsedNow + (alarm.getEpochTriggerTimeMillis() - now);
+                rebasedAlarms.add(new Alarm(alarm.getRequestCode(), alarm.getEpochTriggerTimeMillis(), elapsedTriggerTime));
+            }
+        }
+        AlarmState rebasedState = rebasedAlarms.isEmpty() ? state : state.withAlarms(rebasedAlarms);
+        return rebasedState.withBootCount(bootCount);
+    }
+
+    /**
+     * Keeps the backend registrations in line with an update. Cancels the registered alarms that were removed or pushed back by earlier ones,
+     * then registers the alarms that are now among the first MAX_ARMED_ALARMS to ring and were not registered before or were moved
+     * @param previousState snapshot before the update
+     * @param state snapshot after the update
+     * @param firedRequestCode request code of an alarm the backend already dropped because it went off, or Alarm.NO_REQUEST_CODE
+     */
+    private void updateRegistrations(AlarmState previousState, AlarmState state, int firedRequestCode) {
+        if (previousState == state) {
+            return;
+        }
+        Alarm previousLastArmedAlarm = lastArmedAlarm(previousState);
+        Alarm lastArmedAlarm = lastArmedAlarm(state);
+        // Cancelled first, so the registrations never exceed the limit
+        for (Alarm previousAlarm : previousState.getAlarms()) {
+            if (previousAlarm.getRequestCode() == firedRequestCode || !isArmed(previousAlarm, previousLastArmedAlarm)) {
+                continue;
+            }
+            Alarm alarm = state.getAlarm(previousAlarm.getRequestCode());
+            if (alarm == null || !isArmed(alarm, lastArmedAlarm)) {
+                wakeupBackend.cancel(previousAlarm);
+            }
+        }
+        for (Alarm alarm : state.getAlarms()) {
+            if (!isArmed(alarm, lastArmedAlarm)) {
+                continue;
+            }
+            Alarm previousAlarm = previousState.getAlarm(alarm.getRequestCode());
+            if (previousAlarm == null || !previousAlarm.equals(alarm) || alarm.getRequestCode() == firedRequestCode
+                    || !isArmed(previousAlarm, previousLastArmedAlarm)) {
+                wakeupBackend.arm(alarm);
+            }
+        }
+    }
+
+    /**
+     * Gets the last of the alarms that are registered with the backend, in the order they ring
+     * @param state snapshot to check
+     * @return the alarm, null if there are no more than MAX_ARMED_ALARMS alarms and all of them are registered
+     */
+    private static Alarm lastArmedAlarm(AlarmState state) {
+        if (state.getSummary().getAlarmCount() <= MAX_ARMED_ALARMS) {
+            return null;
+        }
+        List<Alarm> alarms = new ArrayList<>(state.getAlarms());
+        alarms.sort(RING_ORDER);
+        return alarms.get(MAX_ARMED_ALARMS - 1);
+    }
+
+    private static boolean isArmed(Alarm alarm, Alarm lastArmedAlarm) {
+        return lastArmedAlarm == null || RING_ORDER.compare(alarm, lastArmedAlarm) <= 0;
+    }
+
+    private void report(AlarmHistoryEvent.Type type, Alarm alarm) {
+        eventListener.onAlarmEvent(AlarmHistoryEvent.of(type, clock.currentTimeMillis(), alarm));
+    }
+
+    /**
+     * Creates an alarm with a random request code that no set alarm uses
+     * @param state state the alarm is added to
+     * @param usedRequestCodes request codes taken by alarms created in the same update
+     * @param triggerAfterMillis time after which the alarm should trigger in milliseconds
+     * @return Alarm that triggers after given time
+     */
+    private Alarm createAlarm(AlarmState state, Set<Integer> usedRequestCodes, int triggerAfterMillis) {
+        return new Alarm(createRequestCode(state, usedRequestCodes), clock.currentTimeMillis() + triggerAfterMillis,
+                clock.elapsedRealtimeMillis() + triggerAfterMillis);
+    }
+
+    /**
+     * Creates a random request code that no set alarm uses
+     * @param state state the alarm is added to
+     * @param usedRequestCodes request codes taken by alarms created in the same update
+     * @return unused request code
+     */
+    private int createRequestCode(AlarmState state, Set<Integer> usedRequestCodes) {
+        int requestCode;
+        do {
+            requestCode = 1 + random.nextInt(MAX_REQUEST_CODE - 1);
+        } while (state.getAlarm(requestCode) != null || usedRequestCodes.contains(requestCode));
+        return requestCode;
+    }
+}
@@ -0,0 +1,113 @@
+package com.customsolutions.automaticalarmsetter.core.history;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+
+import java.util.Objects;
+
+/**
+ * Something that happened to an alarm, kept in the alarm history
+ */
+public class AlarmHistoryEvent {
+
+    /**
+     * Kind of event. The codes are stored in the history file, so they must never change
+     */
+    public enum Type {
+        SCHEDULED(1),
+        FIRED(2),
+        SNOOZED(3),
+        STOPPED(4),
+        CANCELLED(5),
+        MISSED(6); // Went off but was never stopped or snoozed, removed by compaction
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte getCode() {
+            return code;
+        }
+
+        /**
+         * Gets the type stored with a code
+         * @param code stored code
+         * @return the type, null if the code is unknown
+         */
+        public static Type fromCode(byte code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Type type;
+    private final long epochTimeMillis;
+    private final int requestCode;
+    private final long epochTriggerTimeMillis;
+
+    /**
+     * @param type kind of event
+     * @param epochTimeMillis epoch time at which the event happened in milliseconds
+     * @param requestCode request code of the alarm
+     * @param epochTriggerTimeMillis trigger time of the alarm after the event in milliseconds
+     */
+    public AlarmHistoryEvent(Type type, long epochTimeMillis, int requestCode, long epochTriggerTimeMillis) {
+        this.type = type;
+        this.epochTimeMillis = epochTimeMillis;
+        this.requestCode = requestCode;
+        this.epochTriggerTimeMillis = epochTriggerTimeMillis;
+    }
+
+    /**
+     * Creates the event of an alarm
+     * @param type kind of event
+     * @param epochTimeMillis epoch time at which the event happened in milliseconds
+     * @param alarm alarm the event happened to
+     * @return the event
+     */
+    public static AlarmHistoryEvent of(Type type, long epochTimeMillis, Alarm alarm) {
+        return new AlarmHistoryEvent(type, epochTimeMillis, alarm.getRequestCode(), alarm.getEpochTriggerTimeMillis());
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getEpochTimeMillis() {
+        return epochTimeMillis;
+    }
+
+    public int getRequestCode() {
+        return requestCode;
+    }
+
+    public long getEpochTriggerTimeMillis() {
+        return epochTriggerTimeMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AlarmHistoryEvent otherEvent = (AlarmHistoryEvent) o;
+        return type == otherEvent.type &&
+                epochTimeMillis == otherEvent.epochTimeMillis &&
+                requestCode == otherEvent.requestCode &&
+                epochTriggerTimeMillis == otherEvent.epochTriggerTimeMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, epochTimeMillis, requestCode, epochTriggerTimeMillis);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + requestCode + " at " + epochTimeMillis + ", triggers at " + epochTriggerTimeMillis;
+    }
+}
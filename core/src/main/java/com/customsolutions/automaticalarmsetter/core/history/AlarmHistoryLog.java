@@ -0,0 +1,240 @@
+package com.customsolutions.automaticalarmsetter.core.history;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Bounded alarm history stored as fixed-size binary records in a circular file.
+ * Once the file holds its capacity, each append overwrites the oldest record. An append writes one record and the header
+ * in place, so it takes the same time however long the history is, and the file never grows beyond its capacity.
+ * <p>
+ * Layout, big-endian: a header of magic (int), capacity (int) and the number of events ever appended (long),
+ * followed by up to capacity records of epoch time (long), trigger time (long), request code (int), type (byte) and a checksum (3 bytes).
+ * The event with sequence number n is stored in slot n % capacity.
+ * <p>
+ * The record and the count are separate writes, and neither is atomic on disk, so a crash can leave the count covering a record
+ * that is torn or still holds the event it was about to overwrite. The checksum covers the record and its sequence number,
+ * and records that fail it are skipped when reading
+ */
+public class AlarmHistoryLog implements Closeable {
+
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 24;
+    private static final int MAGIC = 0x414c4832; // "ALH2"
+    private static final int COUNT_OFFSET = 8;
+    private static final int CHECKSUM_OFFSET = 21;
+    private static final int CHECKSUM_MASK = 0xffffff;
+    private static final int READ_CHUNK_RECORDS = 256;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int capacity;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer countBuffer = ByteBuffer.allocate(8);
+    private final ByteBuffer sequenceBuffer = ByteBuffer.allocate(8);
+    private final CRC32 crc = new CRC32();
+    private long count; // Number of events ever appended
+
+    /**
+     * Opens the history, creating it if it does not exist.
+     * A file written with a different capacity or format is started over
+     * @param path file holding the history
+     * @param capacity maximum number of events kept
+     * @throws IOException if the file cannot be read or written
+     */
+    public AlarmHistoryLog(File path, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+        try {
+            this.count = readHeader();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header, or writes a new one if it is missing or does not match
+     * @return number of events ever appended
+     */
+    private long readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (channel.size() >= HEADER_SIZE) {
+            readFully(header, 0);
+            header.flip();
+            long storedCount = header.getLong(COUNT_OFFSET);
+            if (header.getInt(0) == MAGIC && header.getInt(4) == capacity && storedCount >= 0
+                    && channel.size() >= HEADER_SIZE + Math.min(storedCount, capacity) * RECORD_SIZE) {
+                return storedCount;
+            }
+        }
+        header.clear();
+        header.putInt(MAGIC).putInt(capacity).putLong(0);
+        header.flip();
+        channel.truncate(0);
+        writeFully(header, 0);
+        return 0;
+    }
+
+    /**
+     * Appends an event, overwriting the oldest one if the history is full
+     * @param event event to append
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void append(AlarmHistoryEvent event) throws IOException {
+        recordBuffer.clear();
+        recordBuffer.putLong(event.getEpochTimeMillis())
+                .putLong(event.getEpochTriggerTimeMillis())
+                .putInt(event.getRequestCode())
+                .put(event.getType().getCode());
+        int checksum = checksum(crc, sequenceBuffer, count, recordBuffer, 0);
+        recordBuffer.put((byte) (checksum >>> 16)).put((byte) (checksum >>> 8)).put((byte) checksum);
+        recordBuffer.flip();
+        writeFully(recordBuffer, positionOf(count));
+
+        // A crash before the count is written loses the event, a crash after it may leave a record that fails its checksum
+        count++;
+        countBuffer.clear();
+        countBuffer.putLong(count);
+        countBuffer.flip();
+        writeFully(countBuffer, COUNT_OFFSET);
+    }
+
+    /**
+     * Gets the number of events kept
+     * @return number of events, at most the capacity
+     */
+    public synchronized int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    /**
+     * Gets the number of events ever appended, which is the sequence number of the next event
+     * @return number of events appended, including the overwritten ones
+     */
+    public synchronized long getAppendedCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Streams events from the newest to the oldest, reading a chunk of records at a time.
+     * Events appended while reading are not included, events overwritten while reading end the stream
+     * @param beforeSequence only events with a lower sequence number are read. Use getAppendedCount() to start with the newest event
+     * @param maxEvents maximum number of events to read
+     * @param consumer receives the events
+     * @return sequence number of the last event read, to pass as beforeSequence for the next page
+     * @throws IOException if the file cannot be read
+     */
+    public long readNewestFirst(long beforeSequence, int maxEvents, Consumer<AlarmHistoryEvent> consumer) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK_RECORDS * RECORD_SIZE);
+        // The reader has its own checksum state, as appends may run while it parses a chunk
+        ByteBuffer readSequenceBuffer = ByteBuffer.allocate(8);
+        CRC32 readCrc = new CRC32();
+        long sequence;
+        long end;
+        synchronized (this) {
+            sequence = Math.min(beforeSequence, count);
+            end = Math.max(Math.max(0, count - capacity), sequence - maxEvents);
+        }
+        while (sequence > end) {
+            // Read the records from chunkStart to sequence, which are contiguous unless they wrap around the end of the file
+            long chunkStart = Math.max(end, sequence - READ_CHUNK_RECORDS);
+            long slotStart = Math.max(chunkStart, sequence - 1 - (sequence - 1) % capacity);
+            synchronized (this) {
+                if (slotStart < count - capacity) {
+                    // Overwritten since the read started
+                    return sequence;
+                }
+                chunk.clear();
+                chunk.limit((int) (sequence - slotStart) * RECORD_SIZE);
+                readFully(chunk, positionOf(slotStart));
+            }
+            chunk.flip();
+            for (int i = (int) (sequence - slotStart) - 1; i >= 0; i--) {
+                AlarmHistoryEvent event = readRecord(chunk, i * RECORD_SIZE, slotStart + i, readCrc, readSequenceBuffer);
+                if (event != null) {
+                    consumer.accept(event);
+                }
+            }
+            sequence = slotStart;
+        }
+        return sequence;
+    }
+
+    /**
+     * Parses a record
+     * @return the event, null if the record fails its checksum or was written by a newer version
+     */
+    private static AlarmHistoryEvent readRecord(ByteBuffer buffer, int offset, long sequence, CRC32 crc, ByteBuffer sequenceBuffer) {
+        int storedChecksum = (buffer.get(offset + CHECKSUM_OFFSET) & 0xff) << 16
+                | (buffer.get(offset + CHECKSUM_OFFSET + 1) & 0xff) << 8
+                | (buffer.get(offset + CHECKSUM_OFFSET + 2) & 0xff);
+        if (storedChecksum != checksum(crc, sequenceBuffer, sequence, buffer, offset)) {
+            // Torn by a crash, or still holding an older event
+            return null;
+        }
+        AlarmHistoryEvent.Type type = AlarmHistoryEvent.Type.fromCode(buffer.get(offset + 20));
+        if (type == null) {
+            // Written by a newer version
+            return null;
+        }
+        return new AlarmHistoryEvent(type, buffer.getLong(offset), buffer.getInt(offset + 16), buffer.getLong(offset + 8));
+    }
+
+    /**
+     * Computes the checksum of a record's content and its sequence number, so an older event left in the slot does not pass
+     * @param crc checksum state to reuse
+     * @param sequenceBuffer buffer of 8 bytes to reuse
+     * @param sequence sequence number of the record
+     * @param buffer heap buffer holding the record
+     * @param offset offset of the record in the buffer
+     * @return checksum of 24 bits
+     */
+    private static int checksum(CRC32 crc, ByteBuffer sequenceBuffer, long sequence, ByteBuffer buffer, int offset) {
+        sequenceBuffer.clear();
+        sequenceBuffer.putLong(sequence);
+        crc.reset();
+        crc.update(sequenceBuffer.array(), 0, 8);
+        crc.update(buffer.array(), buffer.arrayOffset() + offset, CHECKSUM_OFFSET);
+        return (int) crc.getValue() & CHECKSUM_MASK;
+    }
+
+    private long positionOf(long sequence) {
+        return HEADER_SIZE + (sequence % capacity) * RECORD_SIZE;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Alarm history ended early");
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,30 @@
+package com.customsolutions.automaticalarmsetter.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic count of events. Recording does not allocate, so it can be used on hot paths
+ */
+public class Counter {
+
+    private final AtomicLong count = new AtomicLong();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * Adds to the count
+     * @param amount amount to add, e.g. a number of bytes
+     */
+    public void add(long amount) {
+        count.addAndGet(amount);
+    }
+
+    public long get() {
+        return count.get();
+    }
+}
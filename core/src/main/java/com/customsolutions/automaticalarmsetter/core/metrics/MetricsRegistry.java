@@ -0,0 +1,61 @@
+package com.customsolutions.automaticalarmsetter.core.metrics;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named counters and timers of the application.
+ * Metrics are looked up once, when their owner is created, and recorded through the returned instance afterwards
+ */
+public class MetricsRegistry {
+
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, Timer> timers = new LinkedHashMap<>();
+
+    /**
+     * Gets the counter with the given name, creating it on first use
+     * @param name name of the counter
+     * @return the counter
+     */
+    public synchronized Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * Gets the timer with the given name, creating it on first use
+     * @param name name of the timer
+     * @return the timer
+     */
+    public synchronized Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            timer = new Timer();
+            timers.put(name, timer);
+        }
+        return timer;
+    }
+
+    /**
+     * Prints a snapshot of all metrics, one per line, in the order they were created
+     * @param writer writer to print to
+     */
+    public synchronized void dump(PrintWriter writer) {
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            writer.println(String.format(Locale.ROOT, "%s: %d", entry.getKey(), entry.getValue().get()));
+        }
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            long count = timer.getCount();
+            long averageMicros = count > 0 ? timer.getTotalNanos() / count / 1000 : 0;
+            writer.println(String.format(Locale.ROOT, "%s: count=%d avg=%dus max=%dus",
+                    entry.getKey(), count, averageMicros, timer.getMaxNanos() / 1000));
+        }
+    }
+}
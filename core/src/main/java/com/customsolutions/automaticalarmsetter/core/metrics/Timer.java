@@ -0,0 +1,49 @@
+package com.customsolutions.automaticalarmsetter.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count, total and maximum of the durations of an operation. Recording does not allocate, so it can be used on hot paths
+ */
+public class Timer {
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    Timer() {
+    }
+
+    /**
+     * Records a duration measured with System.nanoTime()
+     * @param startNanos System.nanoTime() when the operation started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a duration
+     * @param nanos duration of the operation in nanoseconds
+     */
+    public void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = maxNanos.get();
+        } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+}
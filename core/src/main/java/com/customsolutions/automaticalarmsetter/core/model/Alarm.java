@@ -0,0 +1,88 @@
+package com.customsolutions.automaticalarmsetter.core.model;
+
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+
+import java.util.Objects;
+
+/**
+ * An alarm that is set to ring at a given time.
+ * The request code identifies the alarm and its registration with the wakeup backend.
+ * Alarms set to ring after a duration also keep their trigger time on the elapsed realtime clock, which is not affected
+ * by clock or timezone changes. Their wall clock trigger time is derived from it and recomputed when the clock changes
+ */
+public class Alarm {
+
+    public static final int NO_REQUEST_CODE = 0; // Generated request codes are never 0
+    public static final long NO_ELAPSED_TRIGGER_TIME = 0; // The elapsed realtime clock starts at boot, so a trigger time after a duration is never 0
+    private final int requestCode;
+    private final long epochTriggerTimeMillis;
+    private final long elapsedTriggerTimeMillis;
+
+    /**
+     * Creates an alarm ringing at a wall clock time, e.g. one imported from a plan
+     * @param requestCode request code of the alarm
+     * @param epochTriggerTimeMillis epoch time at which the alarm rings in milliseconds
+     */
+    public Alarm(int requestCode, long epochTriggerTimeMillis) {
+        this(requestCode, epochTriggerTimeMillis, NO_ELAPSED_TRIGGER_TIME);
+    }
+
+    /**
+     * Creates an alarm ringing after a duration
+     * @param requestCode request code of the alarm
+     * @param epochTriggerTimeMillis epoch time at which the alarm rings in milliseconds, as far as the wall clock currently knows
+     * @param elapsedTriggerTimeMillis elapsed realtime at which the alarm rings in milliseconds, NO_ELAPSED_TRIGGER_TIME for wall clock alarms
+     */
+    public Alarm(int requestCode, long epochTriggerTimeMillis, long elapsedTriggerTimeMillis) {
+        this.requestCode = requestCode;
+        this.epochTriggerTimeMillis = epochTriggerTimeMillis;
+        this.elapsedTriggerTimeMillis = elapsedTriggerTimeMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Alarm otherAlarm = (Alarm) o;
+        // They are the same alarm if request code and trigger time are the same
+        return requestCode == otherAlarm.requestCode &&
+                epochTriggerTimeMillis == otherAlarm.epochTriggerTimeMillis &&
+                elapsedTriggerTimeMillis == otherAlarm.elapsedTriggerTimeMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(requestCode, epochTriggerTimeMillis, elapsedTriggerTimeMillis);
+    }
+    public long getEpochTriggerTimeMillis() {
+        return epochTriggerTimeMillis;
+    }
+
+    public int getRequestCode() {
+        return requestCode;
+    }
+
+    public long getElapsedTriggerTimeMillis() {
+        return elapsedTriggerTimeMillis;
+    }
+
+    /**
+     * Checks whether the alarm rings after a duration, rather than at a wall clock time
+     * @return whether the alarm has an elapsed realtime trigger time
+     */
+    public boolean hasElapsedTriggerTime() {
+        return elapsedTriggerTimeMillis != NO_ELAPSED_TRIGGER_TIME;
+    }
+
+    /**
+     * Gets the wall clock time at which the alarm rings according to its elapsed realtime trigger time
+     * @param clock clock giving the current wall clock and elapsed realtime
+     * @return epoch time in milliseconds, the stored one for wall clock alarms
+     */
+    public long computeEpochTriggerTimeMillis(Clock clock) {
+        if (!hasElapsedTriggerTime()) {
+            return epochTriggerTimeMillis;
+        }
+        return clock.currentTimeMillis() + (elapsedTriggerTimeMillis - clock.elapsedRealtimeMillis());
+    }
+}
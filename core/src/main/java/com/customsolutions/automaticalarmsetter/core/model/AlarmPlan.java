@@ -0,0 +1,50 @@
+package com.customsolutions.automaticalarmsetter.core.model;
+
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of alarms to import or export: durations after the screen turns off and absolute trigger times
+ */
+public class AlarmPlan {
+
+    private final List<Integer> futureAlarmTimes;
+    private final List<Long> epochTriggerTimesMillis;
+
+    /**
+     * @param futureAlarmTimes durations after which alarms are set once the screen turns off in milliseconds
+     * @param epochTriggerTimesMillis epoch times at which alarms ring in milliseconds
+     */
+    public AlarmPlan(List<Integer> futureAlarmTimes, List<Long> epochTriggerTimesMillis) {
+        this.futureAlarmTimes = Collections.unmodifiableList(futureAlarmTimes);
+        this.epochTriggerTimesMillis = Collections.unmodifiableList(epochTriggerTimesMillis);
+    }
+
+    /**
+     * Creates the plan that recreates a snapshot of the alarms
+     * @param state snapshot to export
+     * @return plan with the snapshot's future alarm times and the trigger times of its alarms
+     */
+    public static AlarmPlan of(AlarmState state) {
+        List<Long> triggerTimes = new ArrayList<>();
+        for (Alarm alarm : state.getAlarms()) {
+            triggerTimes.add(alarm.getEpochTriggerTimeMillis());
+        }
+        return new AlarmPlan(state.getFutureAlarmTimes(), triggerTimes);
+    }
+
+    public List<Integer> getFutureAlarmTimes() {
+        return futureAlarmTimes;
+    }
+
+    public List<Long> getEpochTriggerTimesMillis() {
+        return epochTriggerTimesMillis;
+    }
+
+    public boolean isEmpty() {
+        return futureAlarmTimes.isEmpty() && epochTriggerTimesMillis.isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+package com.customsolutions.automaticalarmsetter.core.model;
+
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Alarms and future alarm times to remove in the same update a plan is applied with:
+ * all alarms or the ones with given request codes, and all future alarm times or given ones
+ */
+public class AlarmRemoval {
+
+    public static final AlarmRemoval NONE = new AlarmRemoval(false, Collections.<Integer>emptySet(), false);
+
+    private final boolean allAlarms;
+    private final Set<Integer> requestCodes;
+    private final boolean futureAlarmTimes;
+    private final List<Integer> futureAlarmTimeDurations;
+
+    /**
+     * @param allAlarms whether all alarms are removed
+     * @param requestCodes request codes of the alarms to remove, ignored if all alarms are removed
+     * @param futureAlarmTimes whether all future alarm times are removed
+     */
+    public AlarmRemoval(boolean allAlarms, Collection<Integer> requestCodes, boolean futureAlarmTimes) {
+        this(allAlarms, requestCodes, futureAlarmTimes, Collections.<Integer>emptyList());
+    }
+
+    private AlarmRemoval(boolean allAlarms, Collection<Integer> requestCodes, boolean futureAlarmTimes, Collection<Integer> futureAlarmTimeDurations) {
+        this.allAlarms = allAlarms;
+        this.requestCodes = Collections.unmodifiableSet(new HashSet<>(requestCodes));
+        this.futureAlarmTimes = futureAlarmTimes;
+        this.futureAlarmTimeDurations = Collections.unmodifiableList(new ArrayList<>(futureAlarmTimeDurations));
+    }
+
+    /**
+     * Creates the removal undoing an applied plan, leaving alarms and future alarm times added by others in the meantime
+     * @param alarms the alarms the plan set
+     * @param futureAlarmTimes the future alarm times the plan added, each one is removed once
+     * @return the AlarmRemoval
+     */
+    public static AlarmRemoval undoing(Collection<Alarm> alarms, Collection<Integer> futureAlarmTimes) {
+        Set<Integer> requestCodes = new HashSet<>();
+        for (Alarm alarm : alarms) {
+            requestCodes.add(alarm.getRequestCode());
+        }
+        return new AlarmRemoval(false, requestCodes, false, futureAlarmTimes);
+    }
+
+    /**
+     * Checks whether an alarm is removed
+     * @param alarm alarm to check
+     * @return whether the alarm is removed
+     */
+    public boolean removes(Alarm alarm) {
+        return allAlarms || requestCodes.contains(alarm.getRequestCode());
+    }
+
+    /**
+     * Removes the alarms and future alarm times from a snapshot
+     * @param state snapshot to remove them from
+     * @return new snapshot, or the given one if nothing is removed
+     */
+    public AlarmState apply(AlarmState state) {
+        AlarmState newState = state;
+        if (allAlarms) {
+            newState = newState.hasAlarms() ? newState.withoutAlarms() : newState;
+        } else {
+            for (int requestCode : requestCodes) {
+                newState = newState.withoutAlarm(requestCode);
+            }
+        }
+        if (futureAlarmTimes && newState.hasFutureAlarmTimes()) {
+            newState = newState.withoutFutureAlarmTimes();
+        } else if (!futureAlarmTimes && !futureAlarmTimeDurations.isEmpty()) {
+            newState = newState.withoutFutureAlarmTimes(futureAlarmTimeDurations);
+        }
+        return newState;
+    }
+
+    public boolean isEmpty() {
+        return !allAlarms && requestCodes.isEmpty() && !futureAlarmTimes && futureAlarmTimeDurations.isEmpty();
+    }
+}
@@ -0,0 +1,72 @@
+package com.customsolutions.automaticalarmsetter.core.model;
+
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+
+/**
+ * What the user should be shown about the alarms: when the next alarm rings,
+ * how long after the screen turns off an alarm will be set, or that there are no alarms
+ */
+public class AlarmStatus {
+
+    public enum Kind {
+        ALARM_SET,
+        ALARM_WILL_BE_SET,
+        NO_ALARM
+    }
+
+    public static final AlarmStatus NO_ALARM = new AlarmStatus(Kind.NO_ALARM, null, 0);
+
+    private final Kind kind;
+    private final Alarm nextAlarm;
+    private final int futureAlarmTime;
+
+    private AlarmStatus(Kind kind, Alarm nextAlarm, int futureAlarmTime) {
+        this.kind = kind;
+        this.nextAlarm = nextAlarm;
+        this.futureAlarmTime = futureAlarmTime;
+    }
+
+    /**
+     * Decides the status of a snapshot. Alarms that are set take precedence over alarms that will be set
+     * @param state snapshot of the alarms
+     * @return status of the snapshot
+     */
+    public static AlarmStatus of(AlarmState state) {
+        return of(state.getSummary());
+    }
+
+    /**
+     * Decides the status from a summary of the alarms. Alarms that are set take precedence over alarms that will be set
+     * @param summary summary of the alarms
+     * @return status of the summary
+     */
+    public static AlarmStatus of(AlarmSummary summary) {
+        if (summary.hasAlarms()) {
+            return new AlarmStatus(Kind.ALARM_SET, summary.getNextAlarm(), 0);
+        }
+        if (summary.hasFutureAlarmTimes()) {
+            return new AlarmStatus(Kind.ALARM_WILL_BE_SET, null, summary.getFirstFutureAlarmTime());
+        }
+        return NO_ALARM;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the alarm that rings first
+     * @return the alarm, null unless the kind is ALARM_SET
+     */
+    public Alarm getNextAlarm() {
+        return nextAlarm;
+    }
+
+    /**
+     * Gets the duration after the screen turns off after which the first future alarm is set
+     * @return duration in milliseconds, 0 unless the kind is ALARM_WILL_BE_SET
+     */
+    public int getFutureAlarmTime() {
+        return futureAlarmTime;
+    }
+}
@@ -0,0 +1,70 @@
+package com.customsolutions.automaticalarmsetter.core.model;
+
+import java.util.Objects;
+
+/**
+ * Small record of the alarm state answering existence and next-alarm queries without the full lists:
+ * the number of alarms, the alarm that rings first, the number of future alarm times and the first of them
+ */
+public class AlarmSummary {
+
+    public static final AlarmSummary EMPTY = new AlarmSummary(0, null, 0, 0);
+
+    private final int alarmCount;
+    private final Alarm nextAlarm;
+    private final int futureAlarmTimeCount;
+    private final int firstFutureAlarmTime;
+
+    /**
+     * @param alarmCount number of alarms that are set
+     * @param nextAlarm alarm that rings first, null if no alarm is set
+     * @param futureAlarmTimeCount number of durations after which alarms will be set
+     * @param firstFutureAlarmTime first of the durations in milliseconds, 0 if there are none
+     */
+    public AlarmSummary(int alarmCount, Alarm nextAlarm, int futureAlarmTimeCount, int firstFutureAlarmTime) {
+        this.alarmCount = alarmCount;
+        this.nextAlarm = nextAlarm;
+        this.futureAlarmTimeCount = futureAlarmTimeCount;
+        this.firstFutureAlarmTime = firstFutureAlarmTime;
+    }
+
+    public boolean hasAlarms() {
+        return alarmCount > 0;
+    }
+
+    public boolean hasFutureAlarmTimes() {
+        return futureAlarmTimeCount > 0;
+    }
+
+    public int getAlarmCount() {
+        return alarmCount;
+    }
+
+    public Alarm getNextAlarm() {
+        return nextAlarm;
+    }
+
+    public int getFutureAlarmTimeCount() {
+        return futureAlarmTimeCount;
+    }
+
+    public int getFirstFutureAlarmTime() {
+        return firstFutureAlarmTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AlarmSummary other = (AlarmSummary) o;
+        return alarmCount == other.alarmCount &&
+                futureAlarmTimeCount == other.futureAlarmTimeCount &&
+                firstFutureAlarmTime == other.firstFutureAlarmTime &&
+                Objects.equals(nextAlarm, other.nextAlarm);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(alarmCount, nextAlarm, futureAlarmTimeCount, firstFutureAlarmTime);
+    }
+}
@@ -0,0 +1,17 @@
+package com.customsolutions.automaticalarmsetter.core.port;
+
+import com.customsolutions.automaticalarmsetter.core.history.AlarmHistoryEvent;
+
+/**
+ * Receives what happens to alarms, e.g. to keep a history of them
+ */
+public interface AlarmEventListener {
+
+    AlarmEventListener NONE = event -> {};
+
+    /**
+     * Called after an event happened. Must not block, it is called on the thread that changed the alarm
+     * @param event the event
+     */
+    void onAlarmEvent(AlarmHistoryEvent event);
+}
@@ -0,0 +1,25 @@
+package com.customsolutions.automaticalarmsetter.core.port;
+
+/**
+ * Source of the current time
+ */
+public interface Clock {
+
+    /**
+     * Gets the current wall clock time. Jumps when the user or the network changes the clock
+     * @return epoch time in milliseconds
+     */
+    long currentTimeMillis();
+
+    /**
+     * Gets the time since boot, including deep sleep. Only moves forward and is not affected by clock changes, but starts over on every boot
+     * @return time since boot in milliseconds
+     */
+    long elapsedRealtimeMillis();
+
+    /**
+     * Identifies the current boot, so elapsed realtimes measured in an earlier boot can be told apart. Does not change until the next boot
+     * @return number of the current boot
+     */
+    int bootCount();
+}
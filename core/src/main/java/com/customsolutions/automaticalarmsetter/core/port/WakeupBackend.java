@@ -0,0 +1,21 @@
+package com.customsolutions.automaticalarmsetter.core.port;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+
+/**
+ * System service that wakes the device up and delivers an alarm at its trigger time, e.g. Android's AlarmManager
+ */
+public interface WakeupBackend {
+
+    /**
+     * Registers an alarm. A registered alarm with the same request code is replaced
+     * @param alarm alarm to register
+     */
+    void arm(Alarm alarm);
+
+    /**
+     * Removes the registration of an alarm. Does nothing if the alarm is not registered
+     * @param alarm alarm to unregister
+     */
+    void cancel(Alarm alarm);
+}
@@ -0,0 +1,236 @@
+package com.customsolutions.automaticalarmsetter.core.state;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the alarms that are set and the durations after which alarms will be set.
+ * Every modification returns a new snapshot, leaving the original untouched
+ */
+public class AlarmState {
+
+    public static final int UNKNOWN_BOOT_COUNT = -1; // Stored before boots were recorded, treated as an earlier boot
+    public static final AlarmState EMPTY = new AlarmState(new LinkedHashMap<>(), new ArrayList<>(), UNKNOWN_BOOT_COUNT);
+
+    private final Map<Integer, Alarm> alarmsByRequestCode; // In the order the alarms were set
+    private final List<Integer> futureAlarmTimes;
+    private final AlarmSummary summary; // Built along with the snapshot, which copies the collections anyway
+    private final int bootCount; // Boot in which the elapsed trigger times of the alarms were measured
+
+    private AlarmState(LinkedHashMap<Integer, Alarm> alarmsByRequestCode, List<Integer> futureAlarmTimes, int bootCount) {
+        this.alarmsByRequestCode = Collections.unmodifiableMap(alarmsByRequestCode);
+        this.futureAlarmTimes = Collections.unmodifiableList(futureAlarmTimes);
+        this.bootCount = bootCount;
+        this.summary = summarize(alarmsByRequestCode, futureAlarmTimes);
+    }
+
+    private static AlarmSummary summarize(Map<Integer, Alarm> alarmsByRequestCode, List<Integer> futureAlarmTimes) {
+        Alarm nextAlarm = null;
+        for (Alarm alarm : alarmsByRequestCode.values()) {
+            if (nextAlarm == null || alarm.getEpochTriggerTimeMillis() < nextAlarm.getEpochTriggerTimeMillis()) {
+                nextAlarm = alarm;
+            }
+        }
+        return new AlarmSummary(alarmsByRequestCode.size(), nextAlarm,
+                futureAlarmTimes.size(), futureAlarmTimes.isEmpty() ? 0 : futureAlarmTimes.get(0));
+    }
+
+    /**
+     * Creates a snapshot
+     * @param alarms alarms that are set
+     * @param futureAlarmTimes durations in milliseconds after which alarms will be set
+     * @return snapshot holding copies of the given collections, whose boot is unknown
+     */
+    public static AlarmState of(Collection<Alarm> alarms, Collection<Integer> futureAlarmTimes) {
+        return of(alarms, futureAlarmTimes, UNKNOWN_BOOT_COUNT);
+    }
+
+    /**
+     * Creates a snapshot
+     * @param alarms alarms that are set
+     * @param futureAlarmTimes durations in milliseconds after which alarms will be set
+     * @param bootCount boot in which the elapsed trigger times of the alarms were measured, UNKNOWN_BOOT_COUNT if it is not known
+     * @return snapshot holding copies of the given collections
+     */
+    public static AlarmState of(Collection<Alarm> alarms, Collection<Integer> futureAlarmTimes, int bootCount) {
+        LinkedHashMap<Integer, Alarm> alarmsByRequestCode = new LinkedHashMap<>();
+        for (Alarm alarm : alarms) {
+            alarmsByRequestCode.put(alarm.getRequestCode(), alarm);
+        }
+        return new AlarmState(alarmsByRequestCode, new ArrayList<>(futureAlarmTimes), bootCount);
+    }
+
+    /**
+     * Gets the alarms that are set
+     * @return Unmodifiable list of alarms in the order they were set
+     */
+    public List<Alarm> getAlarms() {
+        return Collections.unmodifiableList(new ArrayList<>(alarmsByRequestCode.values()));
+    }
+
+    /**
+     * Gets the counts, the alarm that rings first and the first future alarm time
+     * @return summary of the snapshot
+     */
+    public AlarmSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Gets an alarm by its request code
+     * @param requestCode request code of the alarm
+     * @return The alarm, null if no alarm with the request code is set
+     */
+    public Alarm getAlarm(int requestCode) {
+        return alarmsByRequestCode.get(requestCode);
+    }
+
+    /**
+     * Gets the durations after which alarms will be set
+     * @return Unmodifiable list of durations in milliseconds
+     */
+    public List<Integer> getFutureAlarmTimes() {
+        return futureAlarmTimes;
+    }
+
+    /**
+     * Gets the boot in which the elapsed trigger times of the alarms were measured
+     * @return boot count given by the Clock, UNKNOWN_BOOT_COUNT if it is not known
+     */
+    public int getBootCount() {
+        return bootCount;
+    }
+
+    public boolean hasAlarms() {
+        return !alarmsByRequestCode.isEmpty();
+    }
+
+    public boolean hasFutureAlarmTimes() {
+        return !futureAlarmTimes.isEmpty();
+    }
+
+    /**
+     * Adds or replaces alarms. An alarm replaces the one with the same request code, keeping its position
+     * @param alarms alarms to add
+     * @return new snapshot
+     */
+    public AlarmState withAlarms(Collection<Alarm> alarms) {
+        LinkedHashMap<Integer, Alarm> newAlarms = new LinkedHashMap<>(alarmsByRequestCode);
+        for (Alarm alarm : alarms) {
+            newAlarms.put(alarm.getRequestCode(), alarm);
+        }
+        return new AlarmState(newAlarms, futureAlarmTimes, bootCount);
+    }
+
+    /**
+     * Adds or replaces an alarm
+     * @param alarm alarm to add
+     * @return new snapshot
+     */
+    public AlarmState withAlarm(Alarm alarm) {
+        return withAlarms(Collections.singletonList(alarm));
+    }
+
+    /**
+     * Removes an alarm
+     * @param requestCode request code of the alarm to remove
+     * @return new snapshot, or this one if no alarm with the request code is set
+     */
+    public AlarmState withoutAlarm(int requestCode) {
+        if (!alarmsByRequestCode.containsKey(requestCode)) {
+            return this;
+        }
+        LinkedHashMap<Integer, Alarm> newAlarms = new LinkedHashMap<>(alarmsByRequestCode);
+        newAlarms.remove(requestCode);
+        return new AlarmState(newAlarms, futureAlarmTimes, bootCount);
+    }
+
+    /**
+     * Removes the alarms whose trigger time is before a given time
+     * @param epochTimeMillis epoch time in milliseconds
+     * @return new snapshot, or this one if no alarm triggers before the time
+     */
+    public AlarmState withoutAlarmsTriggeringBefore(long epochTimeMillis) {
+        return withoutAlarmsTriggeringBefore(epochTimeMillis, Alarm.NO_REQUEST_CODE);
+    }
+
+    /**
+     * Removes the alarms whose trigger time is before a given time, except one
+     * @param epochTimeMillis epoch time in milliseconds
+     * @param keptRequestCode request code of the alarm to keep, e.g. the one ringing, or Alarm.NO_REQUEST_CODE
+     * @return new snapshot, or this one if no other alarm triggers before the time
+     */
+    public AlarmState withoutAlarmsTriggeringBefore(long epochTimeMillis, int keptRequestCode) {
+        LinkedHashMap<Integer, Alarm> newAlarms = new LinkedHashMap<>(alarmsByRequestCode);
+        newAlarms.values().removeIf(alarm -> alarm.getEpochTriggerTimeMillis() < epochTimeMillis && alarm.getRequestCode() != keptRequestCode);
+        if (newAlarms.size() == alarmsByRequestCode.size()) {
+            return this;
+        }
+        return new AlarmState(newAlarms, futureAlarmTimes, bootCount);
+    }
+
+    /**
+     * Removes all alarms
+     * @return new snapshot
+     */
+    public AlarmState withoutAlarms() {
+        return new AlarmState(new LinkedHashMap<>(), futureAlarmTimes, bootCount);
+    }
+
+    /**
+     * Appends durations after which alarms will be set
+     * @param times durations in milliseconds
+     * @return new snapshot
+     */
+    public AlarmState withFutureAlarmTimes(Collection<Integer> times) {
+        List<Integer> newTimes = new ArrayList<>(futureAlarmTimes);
+        newTimes.addAll(times);
+        return new AlarmState(new LinkedHashMap<>(alarmsByRequestCode), newTimes, bootCount);
+    }
+
+    /**
+     * Removes durations after which alarms will be set, each one once, starting with the ones appended last
+     * @param times durations in milliseconds, e.g. the ones a plan appended
+     * @return new snapshot, or this one if none of the durations is present
+     */
+    public AlarmState withoutFutureAlarmTimes(Collection<Integer> times) {
+        List<Integer> newTimes = new ArrayList<>(futureAlarmTimes);
+        for (Integer time : times) {
+            int index = newTimes.lastIndexOf(time);
+            if (index >= 0) {
+                newTimes.remove(index);
+            }
+        }
+        if (newTimes.size() == futureAlarmTimes.size()) {
+            return this;
+        }
+        return new AlarmState(new LinkedHashMap<>(alarmsByRequestCode), newTimes, bootCount);
+    }
+
+    /**
+     * Records the boot in which the elapsed trigger times of the alarms were measured
+     * @param bootCount boot count given by the Clock
+     * @return new snapshot, or this one if the boot is the same
+     */
+    public AlarmState withBootCount(int bootCount) {
+        if (bootCount == this.bootCount) {
+            return this;
+        }
+        return new AlarmState(new LinkedHashMap<>(alarmsByRequestCode), new ArrayList<>(futureAlarmTimes), bootCount);
+    }
+
+    /**
+     * Removes all durations after which alarms will be set
+     * @return new snapshot
+     */
+    public AlarmState withoutFutureAlarmTimes() {
+        return new AlarmState(new LinkedHashMap<>(alarmsByRequestCode), new ArrayList<>(), bootCount);
+    }
+}
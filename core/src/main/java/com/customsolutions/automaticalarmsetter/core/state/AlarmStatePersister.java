@@ -0,0 +1,14 @@
+package com.customsolutions.automaticalarmsetter.core.state;
+
+/**
+ * Storage the AlarmStateStore writes its snapshots to
+ */
+public interface AlarmStatePersister {
+
+    /**
+     * Writes a snapshot to the storage, replacing the previous one.
+     * Only ever called from the store's single writer thread
+     * @param state snapshot to write
+     */
+    void persist(AlarmState state);
+}
@@ -0,0 +1,106 @@
+package com.customsolutions.automaticalarmsetter.core.state;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe holder of the current AlarmState.
+ * The snapshot is published through an atomic reference and replaced with compare-and-set, so concurrent updates are never lost
+ * and readers never block. Snapshots are written to the storage by a single writer, which always writes the latest snapshot,
+ * so several quick updates result in as few writes as possible.
+ */
+public class AlarmStateStore {
+
+    private final AtomicReference<AlarmState> state;
+    private final AlarmStatePersister persister;
+    private final Executor writer;
+    private final AtomicBoolean writePending = new AtomicBoolean(false);
+
+    /**
+     * @param initialState snapshot read from the storage
+     * @param persister storage to write new snapshots to
+     * @param writer executor running the writes. Must run at most one task at a time, in the order they were submitted
+     */
+    public AlarmStateStore(AlarmState initialState, AlarmStatePersister persister, Executor writer) {
+        this.state = new AtomicReference<>(initialState);
+        this.persister = persister;
+        this.writer = writer;
+    }
+
+    /**
+     * Gets the current snapshot
+     * @return the snapshot
+     */
+    public AlarmState get() {
+        return state.get();
+    }
+
+    /**
+     * Atomically replaces the snapshot with the result of the update and schedules a write
+     * @param update function computing the new snapshot. Can be called more than once if other threads update at the same time, so it must not have side effects
+     * @return the new snapshot
+     */
+    public AlarmState updateAndGet(UnaryOperator<AlarmState> update) {
+        AlarmState[] states = update(update);
+        return states[1];
+    }
+
+    /**
+     * Atomically replaces the snapshot with the result of the update and schedules a write
+     * @param update function computing the new snapshot. Can be called more than once if other threads update at the same time, so it must not have side effects
+     * @return the snapshot that was replaced
+     */
+    public AlarmState getAndUpdate(UnaryOperator<AlarmState> update) {
+        AlarmState[] states = update(update);
+        return states[0];
+    }
+
+    /**
+     * Waits until the snapshots of the updates made before the call have been written, e.g. before the process may be killed
+     * @param timeoutMillis how long to wait at most in milliseconds
+     * @return whether the writes finished in time
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        // A pending write was submitted before this task, so it has run once this task runs
+        CountDownLatch written = new CountDownLatch(1);
+        writer.execute(written::countDown);
+        return written.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Atomically replaces the snapshot with the result of the update and schedules a write, applying it with compare-and-set until it succeeds
+     * @param update function computing the new snapshot. Can be called more than once if other threads update at the same time, so it must not have side effects
+     * @return the replaced and the new snapshot, e.g. to compare them
+     */
+    public AlarmState[] update(UnaryOperator<AlarmState> update) {
+        AlarmState previousState;
+        AlarmState newState;
+        do {
+            previousState = state.get();
+            newState = update.apply(previousState);
+        } while (!state.compareAndSet(previousState, newState));
+
+        if (newState != previousState) {
+            scheduleWrite();
+        }
+        return new AlarmState[]{previousState, newState};
+    }
+
+    /**
+     * Schedules writing the latest snapshot unless a write is already pending
+     */
+    private void scheduleWrite() {
+        if (writePending.compareAndSet(false, true)) {
+            writer.execute(() -> {
+                // Clear the flag first, so an update after this point schedules a new write
+                writePending.set(false);
+                persister.persist(state.get());
+            });
+        }
+    }
+}
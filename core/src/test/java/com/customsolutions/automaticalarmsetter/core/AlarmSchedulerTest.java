@@ -0,0 +1,259 @@
+package com.customsolutions.automaticalarmsetter.core;
+
+import com.customsolutions.automaticalarmsetter.core.history.AlarmHistoryEvent;
+import com.customsolutions.automaticalarmsetter.core.metrics.MetricsRegistry;
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmRemoval;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmStatus;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmSummary;
+import com.customsolutions.automaticalarmsetter.core.port.WakeupBackend;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmStateStore;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the AlarmScheduler against a fake clock and wakeup backend
+ */
+public class AlarmSchedulerTest {
+
+    private static final long NOW = 1_000_000;
+
+    /**
+     * Backend keeping the armed alarms by request code, like the AlarmManager keeps pending intents
+     */
+    private static class FakeWakeupBackend implements WakeupBackend {
+        private final Map<Integer, Alarm> armedAlarms = new HashMap<>();
+
+        @Override
+        public void arm(Alarm alarm) {
+            armedAlarms.put(alarm.getRequestCode(), alarm);
+        }
+
+        @Override
+        public void cancel(Alarm alarm) {
+            armedAlarms.remove(alarm.getRequestCode());
+        }
+    }
+
+    private FakeWakeupBackend backend;
+    private AlarmStateStore store;
+    private AlarmScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        backend = new FakeWakeupBackend();
+        // Writes are dropped, only the in-memory state is checked
+        store = new AlarmStateStore(AlarmState.EMPTY, state -> {}, Runnable::run);
+        scheduler = new AlarmScheduler(store, new VirtualClock(NOW, 50_000), backend, new Random(1));
+    }
+
+    @Test
+    public void scheduleFutureAlarms_armsEveryFutureAlarmTimeOnce() {
+        store.updateAndGet(state -> state.withFutureAlarmTimes(Arrays.asList(5000, 1000)));
+
+        List<Alarm> alarms = scheduler.scheduleFutureAlarms();
+
+        assertEquals(2, alarms.size());
+        assertEquals(NOW + 5000, alarms.get(0).getEpochTriggerTimeMillis());
+        assertNotEquals(alarms.get(0).getRequestCode(), alarms.get(1).getRequestCode());
+        assertEquals(2, backend.armedAlarms.size());
+        assertFalse(scheduler.getState().hasFutureAlarmTimes());
+        assertTrue(scheduler.scheduleFutureAlarms().isEmpty());
+
+        AlarmStatus status = scheduler.getStatus();
+        assertEquals(AlarmStatus.Kind.ALARM_SET, status.getKind());
+        assertEquals(NOW + 1000, status.getNextAlarm().getEpochTriggerTimeMillis());
+    }
+
+    @Test
+    public void applyPlan_addsFutureTimesAndArmsOnlyUpcomingAlarms() {
+        AlarmPlan plan = new AlarmPlan(Arrays.asList(1000, 2000), Arrays.asList(NOW - 1, NOW + 5000, NOW + 6000));
+
+        List<Alarm> alarms = scheduler.applyPlan(plan);
+
+        assertEquals(2, alarms.size());
+        assertEquals(2, backend.armedAlarms.size());
+        assertEquals(Arrays.asList(1000, 2000), scheduler.getState().getFutureAlarmTimes());
+        assertEquals(Arrays.asList(NOW + 5000, NOW + 6000), AlarmPlan.of(scheduler.getState()).getEpochTriggerTimesMillis());
+    }
+
+    @Test
+    public void applyPlanWithRemoval_replacesAlarmsInOneUpdate() {
+        store.updateAndGet(state -> state.withAlarm(new Alarm(1, NOW + 1000)).withAlarm(new Alarm(2, NOW + 2000))
+                .withFutureAlarmTimes(Collections.singletonList(3000)));
+        backend.arm(new Alarm(1, NOW + 1000));
+        backend.arm(new Alarm(2, NOW + 2000));
+
+        List<Alarm> alarms = scheduler.applyPlan(new AlarmRemoval(false, Collections.singleton(1), true),
+                new AlarmPlan(Collections.singletonList(4000), Collections.singletonList(NOW + 5000)));
+
+        assertEquals(1, alarms.size());
+        assertNotEquals(1, alarms.get(0).getRequestCode());
+        assertNull(scheduler.getState().getAlarm(1));
+        assertEquals(new Alarm(2, NOW + 2000), scheduler.getState().getAlarm(2));
+        assertEquals(Collections.singletonList(4000), scheduler.getState().getFutureAlarmTimes());
+        assertEquals(new HashSet<>(Arrays.asList(2, alarms.get(0).getRequestCode())), backend.armedAlarms.keySet());
+    }
+
+    @Test
+    public void applyPlanUndoing_removesOnlyThePlansAdditions() {
+        List<Alarm> planned = scheduler.applyPlan(new AlarmPlan(Arrays.asList(1000, 2000), Collections.singletonList(NOW + 5000)));
+        List<Alarm> others = scheduler.applyPlan(new AlarmPlan(Collections.singletonList(1000), Collections.singletonList(NOW + 6000)));
+
+        scheduler.applyPlan(AlarmRemoval.undoing(planned, Arrays.asList(1000, 2000)),
+                new AlarmPlan(Collections.<Integer>emptyList(), Collections.<Long>emptyList()));
+
+        assertEquals(others, scheduler.getState().getAlarms());
+        assertEquals(Collections.singletonList(1000), scheduler.getState().getFutureAlarmTimes());
+        assertEquals(Collections.singleton(others.get(0).getRequestCode()), backend.armedAlarms.keySet());
+    }
+
+    @Test
+    public void applyPlanOverTheLimit_armsOnlyTheFirstAlarmsAndMovesUpTheNextOnes() {
+        List<Long> triggerTimes = new ArrayList<>();
+        for (int i = AlarmScheduler.MAX_ARMED_ALARMS + 1; i > 0; i--) {
+            triggerTimes.add(NOW + i * 1000L);
+        }
+        List<Alarm> alarms = scheduler.applyPlan(new AlarmPlan(Collections.<Integer>emptyList(), triggerTimes));
+        Alarm lastAlarm = alarms.get(0);
+        Alarm firstAlarm = alarms.get(alarms.size() - 1);
+
+        assertEquals(AlarmScheduler.MAX_ARMED_ALARMS, backend.armedAlarms.size());
+        assertFalse(backend.armedAlarms.containsKey(lastAlarm.getRequestCode()));
+
+        backend.cancel(firstAlarm); // Went off
+        scheduler.dismiss(firstAlarm.getRequestCode());
+
+        assertEquals(AlarmScheduler.MAX_ARMED_ALARMS, backend.armedAlarms.size());
+        assertEquals(lastAlarm, backend.armedAlarms.get(lastAlarm.getRequestCode()));
+
+        Alarm earlierAlarm = scheduler.scheduleAfter(500);
+
+        assertEquals(AlarmScheduler.MAX_ARMED_ALARMS, backend.armedAlarms.size());
+        assertTrue(backend.armedAlarms.containsKey(earlierAlarm.getRequestCode()));
+        assertFalse(backend.armedAlarms.containsKey(lastAlarm.getRequestCode()));
+    }
+
+    @Test
+    public void rearm_dropsExpiredAlarmsAndArmsTheRest() {
+        store.updateAndGet(state -> state.withAlarm(new Alarm(1, NOW - 1000)).withAlarm(new Alarm(2, NOW + 1000)));
+
+        List<Alarm> alarms = scheduler.rearm();
+
+        assertEquals(Collections.singletonList(new Alarm(2, NOW + 1000)), alarms);
+        assertEquals(alarms, scheduler.getState().getAlarms());
+        assertEquals(Collections.singleton(2), backend.armedAlarms.keySet());
+    }
+
+    @Test
+    public void compact_removesOnlyAlarmsPastTheGracePeriod() {
+        Alarm staleAlarm = new Alarm(1, NOW - AlarmScheduler.STALE_AFTER_MILLIS - 1);
+        Alarm ringingAlarm = new Alarm(2, NOW - 1000);
+        Alarm upcomingAlarm = new Alarm(3, NOW + 1000);
+        store.updateAndGet(state -> state.withAlarms(Arrays.asList(staleAlarm, ringingAlarm, upcomingAlarm)));
+        backend.arm(staleAlarm);
+
+        assertEquals(Collections.singletonList(staleAlarm), scheduler.compact(Alarm.NO_REQUEST_CODE));
+        assertEquals(Arrays.asList(ringingAlarm, upcomingAlarm), scheduler.getState().getAlarms());
+        assertTrue(backend.armedAlarms.isEmpty());
+        // Nothing left to compact, the state is not replaced
+        AlarmState state = scheduler.getState();
+        assertTrue(scheduler.compact(Alarm.NO_REQUEST_CODE).isEmpty());
+        assertSame(state, scheduler.getState());
+    }
+
+    @Test
+    public void compact_keepsTheRingingAlarmAndReportsMissedOnes() {
+        List<AlarmHistoryEvent> events = new ArrayList<>();
+        scheduler = new AlarmScheduler(store, new VirtualClock(NOW, 50_000), backend, new MetricsRegistry(), new Random(1), events::add);
+        Alarm ringingAlarm = new Alarm(1, NOW - AlarmScheduler.STALE_AFTER_MILLIS - 1);
+        Alarm missedAlarm = new Alarm(2, NOW - AlarmScheduler.STALE_AFTER_MILLIS - 1);
+        store.updateAndGet(state -> state.withAlarms(Arrays.asList(ringingAlarm, missedAlarm)));
+
+        assertEquals(Collections.singletonList(missedAlarm), scheduler.compact(ringingAlarm.getRequestCode()));
+        assertEquals(Collections.singletonList(ringingAlarm), scheduler.getState().getAlarms());
+        assertEquals(1, events.size());
+        assertEquals(AlarmHistoryEvent.Type.MISSED, events.get(0).getType());
+        assertEquals(missedAlarm.getRequestCode(), events.get(0).getRequestCode());
+    }
+
+    @Test
+    public void summary_matchesFullListsAfterEveryMutation() {
+        store.updateAndGet(state -> state.withFutureAlarmTimes(Arrays.asList(4000, 3000)));
+        assertEquals(new AlarmSummary(0, null, 2, 4000), scheduler.getState().getSummary());
+
+        scheduler.scheduleFutureAlarms();
+        Alarm alarm = scheduler.scheduleAfter(1000);
+        assertEquals(new AlarmSummary(3, alarm, 0, 0), scheduler.getState().getSummary());
+
+        Alarm snoozedAlarm = scheduler.snooze(alarm, 5000);
+        AlarmSummary summary = scheduler.getState().getSummary();
+        assertEquals(3, summary.getAlarmCount());
+        assertEquals(NOW + 3000, summary.getNextAlarm().getEpochTriggerTimeMillis());
+
+        scheduler.cancelAll();
+        assertEquals(AlarmSummary.EMPTY, scheduler.getState().getSummary());
+        assertNotNull(snoozedAlarm);
+    }
+
+    @Test
+    public void snooze_replacesAlarmUnderSameRequestCode() {
+        Alarm alarm = scheduler.scheduleAfter(1000);
+
+        Alarm snoozedAlarm = scheduler.snooze(alarm, 60000);
+
+        assertEquals(alarm.getRequestCode(), snoozedAlarm.getRequestCode());
+        assertEquals(NOW + 60000, snoozedAlarm.getEpochTriggerTimeMillis());
+        assertEquals(Collections.singletonList(snoozedAlarm), scheduler.getState().getAlarms());
+        assertEquals(snoozedAlarm, backend.armedAlarms.get(alarm.getRequestCode()));
+    }
+
+    @Test
+    public void snooze_afterCancelAll_doesNotBringTheAlarmBack() {
+        Alarm alarm = scheduler.scheduleAfter(1000);
+        scheduler.cancelAll();
+
+        assertNull(scheduler.snooze(alarm, 60000));
+        assertFalse(scheduler.getState().hasAlarms());
+        assertTrue(backend.armedAlarms.isEmpty());
+    }
+
+    @Test
+    public void cancelAllAndDismiss_leaveNoAlarms() {
+        scheduler.scheduleAfter(1000);
+        Alarm alarm = scheduler.scheduleAfter(2000);
+
+        assertEquals(alarm, scheduler.dismiss(alarm.getRequestCode()));
+        assertNull(scheduler.dismiss(alarm.getRequestCode()));
+        assertEquals(1, scheduler.cancelAll().size());
+
+        // A dismissed alarm already went off, so only the cancelled alarm is removed from the backend
+        assertEquals(Collections.singleton(alarm.getRequestCode()), backend.armedAlarms.keySet());
+        assertEquals(AlarmStatus.NO_ALARM, scheduler.getStatus());
+    }
+
+    @Test
+    public void status_futureAlarmTimeShownOnlyWithoutAlarms() {
+        store.updateAndGet(state -> state.withFutureAlarmTimes(Collections.singletonList(3000)));
+        AlarmStatus status = scheduler.getStatus();
+        assertEquals(AlarmStatus.Kind.ALARM_WILL_BE_SET, status.getKind());
+        assertEquals(3000, status.getFutureAlarmTime());
+
+        scheduler.scheduleAfter(1000);
+        assertEquals(AlarmStatus.Kind.ALARM_SET, scheduler.getStatus().getKind());
+    }
+}
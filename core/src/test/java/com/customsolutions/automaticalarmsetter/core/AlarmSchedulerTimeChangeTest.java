@@ -0,0 +1,142 @@
+package com.customsolutions.automaticalarmsetter.core;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+import com.customsolutions.automaticalarmsetter.core.model.AlarmPlan;
+import com.customsolutions.automaticalarmsetter.core.port.WakeupBackend;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmState;
+import com.customsolutions.automaticalarmsetter.core.state.AlarmStateStore;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the AlarmScheduler against a virtual clock whose wall clock is changed and whose device is rebooted
+ */
+public class AlarmSchedulerTimeChangeTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long ELAPSED = 3_600_000;
+    private static final long HOUR = 3_600_000;
+
+    /**
+     * Backend recording every registration, so tests can check which alarms were registered again
+     */
+    private static class RecordingWakeupBackend implements WakeupBackend {
+        private final List<Alarm> armedAlarms = new ArrayList<>();
+
+        @Override
+        public void arm(Alarm alarm) {
+            armedAlarms.add(alarm);
+        }
+
+        @Override
+        public void cancel(Alarm alarm) {
+        }
+    }
+
+    private VirtualClock clock;
+    private RecordingWakeupBackend backend;
+    private AlarmScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        clock = new VirtualClock(NOW, ELAPSED);
+        backend = new RecordingWakeupBackend();
+        AlarmStateStore store = new AlarmStateStore(AlarmState.EMPTY, state -> {}, Runnable::run);
+        scheduler = new AlarmScheduler(store, clock, backend, new Random(1));
+    }
+
+    @Test
+    public void scheduleAfter_recordsElapsedTriggerTime() {
+        Alarm alarm = scheduler.scheduleAfter(10_000);
+        assertEquals(NOW + 10_000, alarm.getEpochTriggerTimeMillis());
+        assertEquals(ELAPSED + 10_000, alarm.getElapsedTriggerTimeMillis());
+        assertTrue(alarm.hasElapsedTriggerTime());
+    }
+
+    @Test
+    public void wallClockChange_shiftsOnlyRelativeAlarms() {
+        Alarm relativeAlarm = scheduler.scheduleAfter((int) HOUR);
+        Alarm wallClockAlarm = scheduler.applyPlan(new AlarmPlan(Collections.<Integer>emptyList(), Collections.singletonList(NOW + 2 * HOUR))).get(0);
+        clock.advance(10 * 60_000);
+        clock.changeWallClock(-HOUR);
+        backend.armedAlarms.clear();
+
+        List<Alarm> shiftedAlarms = scheduler.onWallClockChanged();
+
+        // Still rings 50 minutes from now, which the wall clock now calls an hour earlier
+        assertEquals(1, shiftedAlarms.size());
+        Alarm shiftedAlarm = shiftedAlarms.get(0);
+        assertEquals(relativeAlarm.getRequestCode(), shiftedAlarm.getRequestCode());
+        assertEquals(relativeAlarm.getEpochTriggerTimeMillis() - HOUR, shiftedAlarm.getEpochTriggerTimeMillis());
+        assertEquals(relativeAlarm.getElapsedTriggerTimeMillis(), shiftedAlarm.getElapsedTriggerTimeMillis());
+        assertEquals(shiftedAlarms, backend.armedAlarms);
+
+        // The wall clock alarm keeps its time
+        assertEquals(wallClockAlarm, scheduler.getState().getAlarm(wallClockAlarm.getRequestCode()));
+        assertEquals(shiftedAlarm.getEpochTriggerTimeMillis(), scheduler.getState().getSummary().getNextAlarm().getEpochTriggerTimeMillis());
+    }
+
+    @Test
+    public void wallClockUnchanged_touchesNothing() {
+        scheduler.scheduleAfter(60_000);
+        scheduler.scheduleAfter(120_000);
+        AlarmState state = scheduler.getState();
+        clock.advance(30_000);
+        clock.changeWallClock(AlarmScheduler.TIME_CHANGE_TOLERANCE_MILLIS - 1);
+        backend.armedAlarms.clear();
+
+        assertTrue(scheduler.onWallClockChanged().isEmpty());
+        assertSame(state, scheduler.getState());
+        assertTrue(backend.armedAlarms.isEmpty());
+    }
+
+    @Test
+    public void rearmAfterReboot_rebasesElapsedTriggerTimes() {
+        Alarm alarm = scheduler.scheduleAfter((int) HOUR);
+        clock.reboot(60_000);
+
+        List<Alarm> alarms = scheduler.rearm();
+
+        assertEquals(1, alarms.size());
+        assertEquals(alarm.getEpochTriggerTimeMillis(), alarms.get(0).getEpochTriggerTimeMillis());
+        // The boot took a minute, so the alarm rings 59 minutes after the elapsed realtime's new start at one minute
+        assertEquals(HOUR, alarms.get(0).getElapsedTriggerTimeMillis());
+
+        // A clock change after the reboot is measured against the rebased trigger time
+        clock.changeWallClock(HOUR);
+        assertEquals(alarm.getEpochTriggerTimeMillis() + HOUR, scheduler.onWallClockChanged().get(0).getEpochTriggerTimeMillis());
+    }
+
+    @Test
+    public void wallClockChangeAfterRebootBeforeRearm_rebasesOnWallClockTimes() {
+        Alarm alarm = scheduler.scheduleAfter((int) HOUR);
+        clock.reboot(60_000);
+        // The network sets the clock before the boot is handled
+        clock.changeWallClock(5_000);
+
+        // The old elapsed trigger time would move the alarm by the uptime before the reboot
+        assertTrue(scheduler.onWallClockChanged().isEmpty());
+        Alarm rebasedAlarm = scheduler.getState().getAlarm(alarm.getRequestCode());
+        assertEquals(alarm.getEpochTriggerTimeMillis(), rebasedAlarm.getEpochTriggerTimeMillis());
+        assertEquals(HOUR - 5_000, rebasedAlarm.getElapsedTriggerTimeMillis());
+
+        // Handling the boot afterwards keeps the rebased time
+        assertEquals(Collections.singletonList(rebasedAlarm), scheduler.rearm());
+    }
+
+    @Test
+    public void snooze_recordsElapsedTriggerTime() {
+        Alarm alarm = scheduler.scheduleAfter(1000);
+        clock.advance(1000);
+        Alarm snoozedAlarm = scheduler.snooze(alarm, 600_000);
+        assertEquals(ELAPSED + 1000 + 600_000, snoozedAlarm.getElapsedTriggerTimeMillis());
+    }
+}
@@ -0,0 +1,61 @@
+package com.customsolutions.automaticalarmsetter.core;
+
+import com.customsolutions.automaticalarmsetter.core.port.Clock;
+
+/**
+ * Clock whose wall clock and elapsed realtime are moved by the test.
+ * Time passing moves both, changing the wall clock or rebooting moves only one of them
+ */
+class VirtualClock implements Clock {
+
+    private long currentTimeMillis;
+    private long elapsedRealtimeMillis;
+    private int bootCount = 1;
+
+    VirtualClock(long currentTimeMillis, long elapsedRealtimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+        this.elapsedRealtimeMillis = elapsedRealtimeMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    @Override
+    public long elapsedRealtimeMillis() {
+        return elapsedRealtimeMillis;
+    }
+
+    @Override
+    public int bootCount() {
+        return bootCount;
+    }
+
+    /**
+     * Lets time pass
+     * @param millis time that passes in milliseconds
+     */
+    void advance(long millis) {
+        currentTimeMillis += millis;
+        elapsedRealtimeMillis += millis;
+    }
+
+    /**
+     * Changes the wall clock, like the user or the network would
+     * @param millis change of the wall clock in milliseconds, negative to set it back
+     */
+    void changeWallClock(long millis) {
+        currentTimeMillis += millis;
+    }
+
+    /**
+     * Reboots the device, starting the elapsed realtime over
+     * @param bootMillis time the boot takes in milliseconds
+     */
+    void reboot(long bootMillis) {
+        currentTimeMillis += bootMillis;
+        elapsedRealtimeMillis = bootMillis;
+        bootCount++;
+    }
+}
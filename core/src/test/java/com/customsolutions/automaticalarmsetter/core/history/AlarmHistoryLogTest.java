@@ -0,0 +1,183 @@
+package com.customsolutions.automaticalarmsetter.core.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the circular alarm history file. Run with -Dhistory.events=N to change the number of events of the bounded test
+ */
+public class AlarmHistoryLogTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("alarm_history", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static AlarmHistoryEvent event(long sequence) {
+        AlarmHistoryEvent.Type type = AlarmHistoryEvent.Type.values()[(int) (sequence % AlarmHistoryEvent.Type.values().length)];
+        return new AlarmHistoryEvent(type, 1_700_000_000_000L + sequence, (int) (sequence % 99999) + 1, 1_700_000_060_000L + sequence);
+    }
+
+    private static List<AlarmHistoryEvent> readAll(AlarmHistoryLog log) throws IOException {
+        List<AlarmHistoryEvent> events = new ArrayList<>();
+        log.readNewestFirst(log.getAppendedCount(), Integer.MAX_VALUE, events::add);
+        return events;
+    }
+
+    @Test
+    public void readNewestFirst_returnsEventsInReverseOrder() throws IOException {
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 10)) {
+            for (int i = 0; i < 3; i++) {
+                log.append(event(i));
+            }
+            List<AlarmHistoryEvent> events = readAll(log);
+            assertEquals(3, events.size());
+            assertEquals(event(2), events.get(0));
+            assertEquals(event(0), events.get(2));
+        }
+    }
+
+    @Test
+    public void append_overwritesOldestOnceFull() throws IOException {
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 10)) {
+            for (int i = 0; i < 25; i++) {
+                log.append(event(i));
+            }
+            assertEquals(10, log.size());
+            assertEquals(25, log.getAppendedCount());
+            List<AlarmHistoryEvent> events = readAll(log);
+            assertEquals(10, events.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(event(24 - i), events.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void readNewestFirst_pagesAcrossTheWrapAround() throws IOException {
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 7)) {
+            for (int i = 0; i < 12; i++) {
+                log.append(event(i));
+            }
+            List<AlarmHistoryEvent> page = new ArrayList<>();
+            long next = log.readNewestFirst(log.getAppendedCount(), 4, page::add);
+            assertEquals(8, next);
+            next = log.readNewestFirst(next, 4, page::add);
+            assertEquals(5, next);
+            assertEquals(7, page.size());
+            for (int i = 0; i < 7; i++) {
+                assertEquals(event(11 - i), page.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void reopen_keepsEvents() throws IOException {
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 5)) {
+            for (int i = 0; i < 8; i++) {
+                log.append(event(i));
+            }
+        }
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 5)) {
+            assertEquals(8, log.getAppendedCount());
+            assertEquals(event(7), readAll(log).get(0));
+            log.append(event(8));
+            assertEquals(event(8), readAll(log).get(0));
+            assertEquals(5, readAll(log).size());
+        }
+    }
+
+    @Test
+    public void tornRecord_isSkipped() throws IOException {
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 5)) {
+            for (int i = 0; i < 3; i++) {
+                log.append(event(i));
+            }
+        }
+        // A crash in the middle of writing event 1
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(AlarmHistoryLog.HEADER_SIZE + AlarmHistoryLog.RECORD_SIZE + 4);
+            raf.writeInt(0);
+        }
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 5)) {
+            List<AlarmHistoryEvent> events = readAll(log);
+            assertEquals(2, events.size());
+            assertEquals(event(2), events.get(0));
+            assertEquals(event(0), events.get(1));
+        }
+    }
+
+    @Test
+    public void countWrittenBeforeRecord_skipsTheOlderEventInTheSlot() throws IOException {
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 2)) {
+            for (int i = 0; i < 2; i++) {
+                log.append(event(i));
+            }
+        }
+        // The count of the third append reached the disk, its record did not, so slot 0 still holds event 0
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            raf.writeLong(3);
+        }
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 2)) {
+            assertEquals(Collections.singletonList(event(1)), readAll(log));
+        }
+    }
+
+    @Test
+    public void reopen_withOtherCapacity_startsOver() throws IOException {
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 5)) {
+            log.append(event(0));
+        }
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, 6)) {
+            assertEquals(0, log.size());
+            assertTrue(readAll(log).isEmpty());
+        }
+    }
+
+    @Test
+    public void millionsOfEvents_keepFileSizeAndMemoryBounded() throws IOException {
+        int events = Integer.getInteger("history.events", 2_000_000);
+        int capacity = 4096;
+        long expectedLength = AlarmHistoryLog.HEADER_SIZE + (long) capacity * AlarmHistoryLog.RECORD_SIZE;
+        Runtime runtime = Runtime.getRuntime();
+        try (AlarmHistoryLog log = new AlarmHistoryLog(file, capacity)) {
+            System.gc();
+            long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+            for (int i = 0; i < events; i++) {
+                log.append(event(i));
+                if (i == capacity) {
+                    assertEquals(expectedLength, file.length());
+                }
+            }
+            System.gc();
+            long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+
+            assertEquals(expectedLength, file.length());
+            assertEquals(events, log.getAppendedCount());
+            // Nothing is kept per event, any growth is unrelated garbage
+            assertTrue("Memory grew by " + (usedAfter - usedBefore) + " bytes", usedAfter - usedBefore < 8 * 1024 * 1024);
+            List<AlarmHistoryEvent> newest = new ArrayList<>();
+            log.readNewestFirst(log.getAppendedCount(), 1, newest::add);
+            assertEquals(event(events - 1), newest.get(0));
+        }
+    }
+}
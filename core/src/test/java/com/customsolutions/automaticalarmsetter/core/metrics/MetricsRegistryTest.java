@@ -0,0 +1,38 @@
+package com.customsolutions.automaticalarmsetter.core.metrics;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void sameNameReturnsSameMetric() {
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        metrics.counter("alarms.scheduled").increment();
+        metrics.counter("alarms.scheduled").add(2);
+
+        assertSame(metrics.timer("alarmManager.arm"), metrics.timer("alarmManager.arm"));
+        assertEquals(3, metrics.counter("alarms.scheduled").get());
+    }
+
+    @Test
+    public void dump_printsCountersAndTimers() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("alarms.fired").increment();
+        Timer timer = metrics.timer("preferences.read");
+        timer.record(3000);
+        timer.record(1000);
+
+        StringWriter output = new StringWriter();
+        metrics.dump(new PrintWriter(output, true));
+
+        String[] lines = output.toString().split(System.lineSeparator());
+        assertEquals("alarms.fired: 1", lines[0]);
+        assertEquals("preferences.read: count=2 avg=2us max=3us", lines[1]);
+    }
+}
@@ -0,0 +1,147 @@
+package com.customsolutions.automaticalarmsetter.core.state;
+
+import com.customsolutions.automaticalarmsetter.core.model.Alarm;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hammers the AlarmStateStore from many threads and checks that no update is lost
+ */
+public class AlarmStateStoreTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 500;
+
+    /**
+     * Persister remembering the last snapshot it was given
+     */
+    private static class RecordingPersister implements AlarmStatePersister {
+        private volatile AlarmState lastPersistedState;
+        private final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public void persist(AlarmState state) {
+            lastPersistedState = state;
+            writes.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void concurrentScheduleCancelSnooze_noUpdateIsLost() throws Exception {
+        RecordingPersister persister = new RecordingPersister();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        AlarmStateStore store = new AlarmStateStore(AlarmState.EMPTY, persister, writer);
+        // Keep the writer busy during the burst, so every update lands while a write is pending
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        writer.execute(() -> {
+            try {
+                writerBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int firstRequestCode = thread * OPERATIONS_PER_THREAD + 1;
+            workers.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int requestCode = firstRequestCode + i;
+                        // Schedule
+                        store.updateAndGet(state -> state.withAlarm(new Alarm(requestCode, 1000)));
+                        // Snooze in place
+                        store.updateAndGet(state -> state.withAlarm(new Alarm(requestCode, 2000 + requestCode)));
+                        // Cancel every other alarm
+                        if (i % 2 == 0) {
+                            AlarmState previous = store.getAndUpdate(state -> state.withoutAlarm(requestCode));
+                            assertNotNull(previous.getAlarm(requestCode));
+                        }
+                        store.updateAndGet(state -> state.withFutureAlarmTimes(Collections.singletonList(requestCode)));
+                    }
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(1, TimeUnit.MINUTES));
+        assertTrue(failures.toString(), failures.isEmpty());
+
+        AlarmState finalState = store.get();
+        assertEquals(THREADS * OPERATIONS_PER_THREAD / 2, finalState.getAlarms().size());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, finalState.getFutureAlarmTimes().size());
+        for (int requestCode = 1; requestCode <= THREADS * OPERATIONS_PER_THREAD; requestCode++) {
+            Alarm alarm = finalState.getAlarm(requestCode);
+            boolean cancelled = (requestCode - 1) % OPERATIONS_PER_THREAD % 2 == 0;
+            if (cancelled) {
+                assertNull(alarm);
+            } else {
+                assertNotNull("Lost alarm " + requestCode, alarm);
+                assertEquals(2000 + requestCode, alarm.getEpochTriggerTimeMillis());
+            }
+        }
+
+        // Nothing is written while the writer is blocked, then the whole burst is coalesced into a single write of the final snapshot
+        assertEquals(0, persister.writes.get());
+        writerBlocked.countDown();
+        writer.shutdown();
+        assertTrue(writer.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(1, persister.writes.get());
+        assertSame(finalState, persister.lastPersistedState);
+    }
+
+    @Test
+    public void flush_waitsForPendingWrite() throws Exception {
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        CountDownLatch persisting = new CountDownLatch(1);
+        RecordingPersister persister = new RecordingPersister() {
+            @Override
+            public void persist(AlarmState state) {
+                try {
+                    // Slow storage, the write is still running when flush is called
+                    persisting.await();
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.persist(state);
+            }
+        };
+        AlarmStateStore store = new AlarmStateStore(AlarmState.EMPTY, persister, writer);
+        AlarmState state = store.updateAndGet(current -> current.withAlarm(new Alarm(1, 10)));
+        persisting.countDown();
+
+        assertTrue(store.flush(TimeUnit.SECONDS.toMillis(10)));
+        assertSame(state, persister.lastPersistedState);
+        writer.shutdown();
+    }
+
+    @Test
+    public void updateWithoutChange_doesNotWrite() {
+        RecordingPersister persister = new RecordingPersister();
+        AlarmStateStore store = new AlarmStateStore(AlarmState.EMPTY, persister, Runnable::run);
+        store.updateAndGet(state -> state.withoutAlarm(5));
+        assertEquals(0, persister.writes.get());
+        store.updateAndGet(state -> state.withAlarm(new Alarm(5, 10)));
+        assertEquals(1, persister.writes.get());
+        assertEquals(new Alarm(5, 10), persister.lastPersistedState.getAlarm(5));
+    }
+}
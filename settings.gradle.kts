@@ -15,3 +15,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "AutomaticAlarmSetter"
 include(":app")
+include(":core")